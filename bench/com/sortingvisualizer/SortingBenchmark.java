@@ -0,0 +1,369 @@
+package com.sortingvisualizer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmark degli algoritmi di SortingBusinessLogic, costruito sul modello di JMH
+ * ma senza dipendenze: si compila con il solo JDK e gira offline.
+ *
+ * Ogni combinazione algoritmo x dimensione x distribuzione viene eseguita in una JVM
+ * separata (fork), con iterazioni di riscaldamento e di misura a durata fissa.
+ * Per ciascuna riporta il throughput (ops/s) e, come il profiler gc di JMH, i byte
+ * allocati per operazione, il tasso di allocazione e le raccolte del GC.
+ * I dataset sono quelli di {@link DatasetSpec}, con seme fisso e valori tra 0 e n-1:
+ * lo stesso caso e' confrontabile tra versioni diverse del motore.
+ *
+ * Compilazione ed esecuzione (dalla radice del progetto):
+ * <pre>
+ * javac -d bin -sourcepath src bench/com/sortingvisualizer/SortingBenchmark.java
+ * java -cp bin com.sortingvisualizer.SortingBenchmark -a "Quick Sort,Merge Sort" -s 1000,1000000
+ * </pre>
+ * Opzioni:
+ * <pre>
+ *   -a   algoritmi separati da virgola                  (default: tutti)
+ *   -s   dimensioni separate da virgola                 (default: 100,1000,...,10000000)
+ *   -d   distribuzioni RANDOM,SORTED,REVERSED,FEW_UNIQUE (default: tutte)
+ *   -wi  iterazioni di riscaldamento                    (default: 3)
+ *   -i   iterazioni di misura                           (default: 5)
+ *   -r   durata di un'iterazione in ms                  (default: 1000)
+ *   -f   numero di fork, 0 = stessa JVM                 (default: 1)
+ *   -q   dimensione massima per i casi quadratici       (default: 10000)
+ *   -c   soglia sequenziale delle versioni parallele    (default: 8192)
+ *   -m   MB per gli istogrammi di Counting Sort         (default: 256)
+ *   -csv file CSV su cui scrivere i risultati
+ * </pre>
+ */
+public final class SortingBenchmark {
+
+    private static final long SEED = 42L;
+    private static final String RESULT_PREFIX = "#result\t";
+
+    private static final class Options {
+        List<String> algorithms = Arrays.asList(SortingBusinessLogic.algorithmNames());
+        List<Integer> sizes = Arrays.asList(100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000);
+        List<Distribution> distributions = Arrays.asList(Distribution.values());
+        int warmupIterations = 3;
+        int iterations = 5;
+        long iterationMillis = 1000;
+        int forks = 1;
+        int quadraticMax = 10_000;
+        int parallelCutoff = SortingBusinessLogic.DEFAULT_PARALLEL_CUTOFF;
+        long countingBudget = SortingBusinessLogic.DEFAULT_COUNTING_BUDGET;
+        String csv;
+        boolean child;
+    }
+
+    /** Risultato di una combinazione: medie sulle iterazioni di misura. */
+    private static final class Result {
+        final String algorithm;
+        final Distribution distribution;
+        final int size;
+        double opsPerSecond;
+        double opsPerSecondDeviation;
+        double bytesPerOp;
+        double allocMegabytesPerSecond;
+        long gcCount;
+        long gcMillis;
+        String failure;
+
+        Result(String algorithm, Distribution distribution, int size) {
+            this.algorithm = algorithm;
+            this.distribution = distribution;
+            this.size = size;
+        }
+
+        String serialize() {
+            return String.join("\t", algorithm, distribution.name(), String.valueOf(size),
+                String.valueOf(opsPerSecond), String.valueOf(opsPerSecondDeviation),
+                String.valueOf(bytesPerOp), String.valueOf(allocMegabytesPerSecond),
+                String.valueOf(gcCount), String.valueOf(gcMillis), failure == null ? "" : failure);
+        }
+
+        static Result parse(String line) {
+            String[] f = line.split("\t", -1);
+            Result r = new Result(f[0], Distribution.valueOf(f[1]), Integer.parseInt(f[2]));
+            r.opsPerSecond = Double.parseDouble(f[3]);
+            r.opsPerSecondDeviation = Double.parseDouble(f[4]);
+            r.bytesPerOp = Double.parseDouble(f[5]);
+            r.allocMegabytesPerSecond = Double.parseDouble(f[6]);
+            r.gcCount = Long.parseLong(f[7]);
+            r.gcMillis = Long.parseLong(f[8]);
+            r.failure = f[9].isEmpty() ? null : f[9];
+            return r;
+        }
+    }
+
+    private SortingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        if (options.child) {
+            // nel fork c'e' una sola combinazione: il risultato torna al padre su stdout
+            Result result = measure(options.algorithms.get(0), options.distributions.get(0),
+                                    options.sizes.get(0), options);
+            System.out.println(RESULT_PREFIX + result.serialize());
+            return;
+        }
+
+        List<Result> results = new ArrayList<>();
+        printHeader();
+        for (String algorithm : options.algorithms) {
+            for (Distribution distribution : options.distributions) {
+                for (int size : options.sizes) {
+                    Result result;
+                    if (SortingBusinessLogic.isQuadratic(algorithm, dataset(distribution, size)) && size > options.quadraticMax) {
+                        result = new Result(algorithm, distribution, size);
+                        result.failure = "saltato: quadratico oltre -q " + options.quadraticMax;
+                    } else if (options.forks == 0) {
+                        result = measure(algorithm, distribution, size, options);
+                    } else {
+                        result = fork(algorithm, distribution, size, options);
+                    }
+                    print(result);
+                    results.add(result);
+                }
+            }
+        }
+        if (options.csv != null) {
+            writeCsv(results, new File(options.csv));
+        }
+    }
+
+    private static DatasetSpec dataset(Distribution distribution, int size) {
+        return new DatasetSpec(SEED, size, 0, Math.max(0, size - 1), distribution);
+    }
+
+    private static Result fork(String algorithm, Distribution distribution, int size, Options options)
+            throws IOException, InterruptedException {
+        List<Result> forks = new ArrayList<>();
+        for (int f = 0; f < options.forks; f++) {
+            Result last = null;
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(SortingBenchmark.class.getName());
+            command.addAll(Arrays.asList("--child", "-a", algorithm, "-d", distribution.name(),
+                "-s", String.valueOf(size), "-wi", String.valueOf(options.warmupIterations),
+                "-i", String.valueOf(options.iterations), "-r", String.valueOf(options.iterationMillis),
+                "-c", String.valueOf(options.parallelCutoff), "-m", String.valueOf(options.countingBudget >> 20)));
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) {
+                        last = Result.parse(line.substring(RESULT_PREFIX.length()));
+                    } else {
+                        output.append(line).append('\n');
+                    }
+                }
+            }
+            int exit = process.waitFor();
+            if (last == null) {
+                Result failed = new Result(algorithm, distribution, size);
+                failed.failure = "fork terminato con codice " + exit + ": " + output.toString().trim();
+                return failed;
+            }
+            forks.add(last);
+        }
+        return forks.size() == 1 ? forks.get(0) : average(forks);
+    }
+
+    private static Result average(List<Result> forks) {
+        Result first = forks.get(0);
+        Result avg = new Result(first.algorithm, first.distribution, first.size);
+        for (Result r : forks) {
+            if (r.failure != null) {
+                return r;
+            }
+            avg.opsPerSecond += r.opsPerSecond / forks.size();
+            avg.opsPerSecondDeviation += r.opsPerSecondDeviation / forks.size();
+            avg.bytesPerOp += r.bytesPerOp / forks.size();
+            avg.allocMegabytesPerSecond += r.allocMegabytesPerSecond / forks.size();
+            avg.gcCount += r.gcCount;
+            avg.gcMillis += r.gcMillis;
+        }
+        return avg;
+    }
+
+    private static Result measure(String algorithm, Distribution distribution, int size, Options options) {
+        Result result = new Result(algorithm, distribution, size);
+        int[] source = dataset(distribution, size).generate();
+        int[] work = new int[size];
+        IntArray data = new IntArray(work);
+        long iterationNanos = options.iterationMillis * 1_000_000L;
+        for (int i = 0; i < options.warmupIterations; i++) {
+            iteration(algorithm, source, work, data, iterationNanos, options.parallelCutoff, null);
+        }
+        double[] throughput = new double[options.iterations];
+        for (int i = 0; i < options.iterations; i++) {
+            throughput[i] = iteration(algorithm, source, work, data, iterationNanos, options.parallelCutoff, result);
+        }
+        double mean = 0;
+        for (double t : throughput) {
+            mean += t / throughput.length;
+        }
+        double variance = 0;
+        for (double t : throughput) {
+            variance += (t - mean) * (t - mean) / Math.max(1, throughput.length - 1);
+        }
+        result.opsPerSecond = mean;
+        result.opsPerSecondDeviation = Math.sqrt(variance);
+        result.bytesPerOp /= options.iterations;
+        result.allocMegabytesPerSecond /= options.iterations;
+        for (int i = 1; i < work.length; i++) {
+            if (work[i - 1] > work[i]) {
+                throw new IllegalStateException(algorithm + " non ha ordinato l'input " + distribution);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Un'iterazione a durata fissa: ordina copie dell'input finche' non scade il tempo
+     * (almeno una volta) e restituisce le operazioni al secondo. La copia dell'input non
+     * alloca e non e' cronometrata. Se accumulator non e' null vi somma allocazioni e GC
+     * (le allocazioni contano solo il thread chiamante, non i worker delle versioni parallele).
+     */
+    private static double iteration(String algorithm, int[] source, int[] work, IntArray data,
+                                    long durationNanos, int parallelCutoff, Result accumulator) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocatedBytes(threads, threadId);
+        long gcCountBefore = 0;
+        long gcMillisBefore = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCountBefore += Math.max(0, gc.getCollectionCount());
+            gcMillisBefore += Math.max(0, gc.getCollectionTime());
+        }
+
+        long ops = 0;
+        long sortNanos = 0;
+        long begin = System.nanoTime();
+        long end = begin + durationNanos;
+        do {
+            System.arraycopy(source, 0, work, 0, work.length);
+            long start = System.nanoTime();
+            SortingBusinessLogic.sortHeadless(algorithm, data, parallelCutoff);
+            sortNanos += System.nanoTime() - start;
+            ops++;
+        } while (System.nanoTime() < end);
+        long wallNanos = System.nanoTime() - begin;
+
+        if (accumulator != null) {
+            long allocated = allocatedBytes(threads, threadId) - allocatedBefore;
+            accumulator.bytesPerOp += (double) allocated / ops;
+            accumulator.allocMegabytesPerSecond += allocated / (1024.0 * 1024.0) / (wallNanos / 1e9);
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                accumulator.gcCount += Math.max(0, gc.getCollectionCount());
+                accumulator.gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+            accumulator.gcCount -= gcCountBefore;
+            accumulator.gcMillis -= gcMillisBefore;
+        }
+        return ops / (Math.max(1, sortNanos) / 1e9);
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, long threadId) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+        }
+        return 0;
+    }
+
+    private static void printHeader() {
+        System.out.println(String.format(Locale.ROOT, "%-22s %-11s %10s %16s %14s %12s %12s %10s %5s %7s",
+            "Algoritmo", "Input", "N", "ops/s", "+- dev", "ms/op", "B/op", "alloc MB/s", "GC", "GC ms"));
+    }
+
+    private static void print(Result r) {
+        if (r.failure != null) {
+            System.out.println(String.format(Locale.ROOT, "%-22s %-11s %10d   %s",
+                r.algorithm, r.distribution, r.size, r.failure));
+            return;
+        }
+        System.out.println(String.format(Locale.ROOT, "%-22s %-11s %10d %16.3f %14.3f %12.4f %12.1f %10.1f %5d %7d",
+            r.algorithm, r.distribution, r.size, r.opsPerSecond, r.opsPerSecondDeviation,
+            1000.0 / r.opsPerSecond, r.bytesPerOp, r.allocMegabytesPerSecond, r.gcCount, r.gcMillis));
+    }
+
+    private static void writeCsv(List<Result> results, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("algorithm,distribution,size,ops_per_s,ops_per_s_stddev,ms_per_op,bytes_per_op,alloc_mb_per_s,gc_count,gc_ms,note");
+            for (Result r : results) {
+                out.println(String.format(Locale.ROOT, "\"%s\",%s,%d,%.3f,%.3f,%.6f,%.1f,%.1f,%d,%d,\"%s\"",
+                    r.algorithm, r.distribution, r.size, r.opsPerSecond, r.opsPerSecondDeviation,
+                    r.opsPerSecond > 0 ? 1000.0 / r.opsPerSecond : 0.0, r.bytesPerOp,
+                    r.allocMegabytesPerSecond, r.gcCount, r.gcMillis, r.failure == null ? "" : r.failure));
+            }
+        }
+    }
+
+    private static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--child".equals(arg)) {
+                options.child = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valore mancante per " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-a": options.algorithms = Arrays.asList(value.split("\\s*,\\s*")); break;
+                case "-s": options.sizes = parseInts(value); break;
+                case "-d": options.distributions = parseDistributions(value); break;
+                case "-wi": options.warmupIterations = Integer.parseInt(value); break;
+                case "-i": options.iterations = Integer.parseInt(value); break;
+                case "-r": options.iterationMillis = Long.parseLong(value); break;
+                case "-f": options.forks = Integer.parseInt(value); break;
+                case "-q": options.quadraticMax = Integer.parseInt(value); break;
+                case "-c": options.parallelCutoff = Integer.parseInt(value); break;
+                case "-m": options.countingBudget = Long.parseLong(value) << 20; break;
+                case "-csv": options.csv = value; break;
+                default: throw new IllegalArgumentException("Opzione sconosciuta: " + arg);
+            }
+        }
+        SortingBusinessLogic.setCountingMemoryBudget(options.countingBudget);
+        List<String> known = Arrays.asList(SortingBusinessLogic.algorithmNames());
+        for (String algorithm : options.algorithms) {
+            if (!known.contains(algorithm)) {
+                throw new IllegalArgumentException("Algoritmo sconosciuto: " + algorithm + " (disponibili: " + known + ")");
+            }
+        }
+        return options;
+    }
+
+    private static List<Integer> parseInts(String value) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String s : value.split("\\s*,\\s*")) {
+            sizes.add((int) Double.parseDouble(s));
+        }
+        return sizes;
+    }
+
+    private static List<Distribution> parseDistributions(String value) {
+        List<Distribution> distributions = new ArrayList<>();
+        for (String s : value.split("\\s*,\\s*")) {
+            distributions.add(Distribution.valueOf(s.toUpperCase(Locale.ROOT)));
+        }
+        return distributions;
+    }
+}
@@ -0,0 +1,34 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Array ordinato con inserimento binario: la ricerca costa log n, ma ogni inserimento sposta
+ * in media meta' degli elementi, e a ogni raddoppio della capacita' si ricopia tutto.
+ */
+final class ArrayStreamingSorter implements StreamingSorter {
+
+    private int[] values = new int[1024];
+    private int size;
+
+    @Override
+    public void insert(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int position = StreamingSorter.upperBound(values, 0, size, value);
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void copyTo(int[] dest) {
+        System.arraycopy(values, 0, dest, 0, size);
+    }
+}
@@ -0,0 +1,105 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * B+-tree a pagine di int: le foglie tengono fino a {@value #PAGE} valori ordinati (1 KB,
+ * poche linee di cache per la ricerca binaria) e sono collegate in lista; i nodi interni
+ * tengono le chiavi di separazione. Un valore uguale a un separatore scende a destra,
+ * come l'inserimento binario. Solo inserimenti: le pagine si dividono a meta' quando traboccano.
+ */
+final class BPlusTreeStreamingSorter implements StreamingSorter {
+
+    private static final int PAGE = 256;
+
+    /** Pagina con una posizione in piu' per il valore che la fa traboccare prima della divisione. */
+    private static final class Page {
+        final int[] keys = new int[PAGE + 1];
+        final Page[] children;
+        int count;
+        Page next;
+
+        Page(boolean leaf) {
+            children = leaf ? null : new Page[PAGE + 2];
+        }
+    }
+
+    private Page root = new Page(true);
+    private final Page first = root;
+    private int size;
+    // separatore dell'ultima divisione, da inserire nel padre
+    private int splitKey;
+
+    @Override
+    public void insert(int value) {
+        Page split = insert(root, value);
+        if (split != null) {
+            Page newRoot = new Page(false);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = split;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+        size++;
+    }
+
+    /** Inserisce nel sottoalbero e restituisce la nuova pagina destra se page si e' divisa. */
+    private Page insert(Page page, int value) {
+        int position = StreamingSorter.upperBound(page.keys, 0, page.count, value);
+        if (page.children == null) {
+            System.arraycopy(page.keys, position, page.keys, position + 1, page.count - position);
+            page.keys[position] = value;
+            page.count++;
+            return page.count > PAGE ? splitLeaf(page) : null;
+        }
+        Page split = insert(page.children[position], value);
+        if (split == null) {
+            return null;
+        }
+        System.arraycopy(page.keys, position, page.keys, position + 1, page.count - position);
+        System.arraycopy(page.children, position + 1, page.children, position + 2, page.count - position);
+        page.keys[position] = splitKey;
+        page.children[position + 1] = split;
+        page.count++;
+        return page.count > PAGE ? splitInner(page) : null;
+    }
+
+    private Page splitLeaf(Page page) {
+        int half = page.count / 2;
+        Page right = new Page(true);
+        right.count = page.count - half;
+        System.arraycopy(page.keys, half, right.keys, 0, right.count);
+        page.count = half;
+        right.next = page.next;
+        page.next = right;
+        splitKey = right.keys[0];
+        return right;
+    }
+
+    private Page splitInner(Page page) {
+        int middle = page.count / 2;
+        Page right = new Page(false);
+        right.count = page.count - middle - 1;
+        System.arraycopy(page.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(page.children, middle + 1, right.children, 0, right.count + 1);
+        Arrays.fill(page.children, middle + 1, page.count + 1, null);
+        page.count = middle;
+        splitKey = page.keys[middle];
+        return right;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void copyTo(int[] dest) {
+        int i = 0;
+        for (Page leaf = first; leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.keys, 0, dest, i, leaf.count);
+            i += leaf.count;
+        }
+    }
+}
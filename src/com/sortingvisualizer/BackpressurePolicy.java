@@ -0,0 +1,29 @@
+package com.sortingvisualizer;
+
+/**
+ * Cosa fa il buffer degli eventi di un algoritmo quando l'interfaccia non lo svuota abbastanza
+ * in fretta e si riempie ({@value SortEventBuffer#CAPACITY} eventi). In ogni caso la memoria
+ * resta limitata; quando si scartano eventi il consumatore si risincronizza con una copia
+ * dell'array e il frame mostrato e' lo stesso.
+ */
+public enum BackpressurePolicy {
+    /** Il thread dell'algoritmo aspetta che il buffer si svuoti: avanza alla velocita' dell'interfaccia. */
+    BLOCK("Attendi"),
+    /**
+     * Ogni nuovo evento fa uscire il piu' vecchio: restano gli ultimi {@value SortEventBuffer#CAPACITY}
+     * e il consumatore riparte da una copia dell'array.
+     */
+    DROP_OLDEST("Scarta vecchi"),
+    /** Si tiene solo l'ultimo evento: il consumatore copia l'array a ogni frame. */
+    KEEP_LATEST("Solo ultimo");
+
+    private final String label;
+
+    BackpressurePolicy(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
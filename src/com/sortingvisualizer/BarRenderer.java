@@ -0,0 +1,44 @@
+package com.sortingvisualizer;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Disegna lo stato di un algoritmo nel suo pannello di visualizzazione.
+ * L'implementazione si puo' cambiare a runtime per confrontarne i tempi di frame.
+ */
+interface BarRenderer {
+    
+    String getName();
+    
+    /**
+     * Ridisegna il pannello con i dati correnti. Se isCompleted e' true non si applica
+     * nessun effetto di lampeggio, indipendentemente da blinkBars. workers[i] e' il worker
+     * (indice + 1) che ha lavorato per ultimo sull'elemento i, 0 se nessuno: le barre con
+     * un worker prendono il suo colore.
+     */
+    void render(Pane pane, int[] data, int firstActive, int secondActive, int[] workers,
+                Color algColor, boolean blinkBars, boolean isCompleted);
+    
+    /**
+     * Porta le barre che lampeggiano all'opacita' data senza ricostruire il pannello.
+     * Restituisce false se il renderer non sa farlo e il pannello va ridisegnato per intero.
+     */
+    default boolean blink(Pane pane, double opacity) {
+        return false;
+    }
+    
+    /**
+     * Opacita' delle barre che lampeggiano all'istante nanos (scala di System.nanoTime):
+     * da 1.0 a 0.4 e ritorno in un secondo. Tutti i pannelli leggono lo stesso orologio,
+     * cosi' lampeggiano in fase senza un'animazione per barra.
+     */
+    static double blinkOpacity(long nanos) {
+        return 0.7 + 0.3 * Math.cos(nanos / 1e9 * 2 * Math.PI);
+    }
+    
+    /** Colore di un worker: tinte distanziate dell'angolo aureo, distinguibili anche con molti core. */
+    static Color workerColor(int worker) {
+        return Color.hsb((worker * 137.508) % 360, 0.7, 0.95);
+    }
+}
@@ -0,0 +1,58 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Fusione periodica a lotti: i valori si accodano in un lotto non ordinato e, quando il lotto
+ * e' pieno, lo si ordina e lo si fonde nell'array principale partendo dal fondo, senza buffer
+ * ausiliari. Quasi tutti gli inserimenti costano una scrittura; uno ogni {@value #BATCH} paga
+ * la fusione, lineare nella dimensione: e' la strategia con la coda di latenza piu' lunga.
+ */
+final class BatchMergeStreamingSorter implements StreamingSorter {
+
+    private static final int BATCH = 4096;
+
+    private final int[] batch = new int[BATCH];
+    private int pending;
+    private int[] values = new int[BATCH];
+    private int merged;
+
+    @Override
+    public void insert(int value) {
+        batch[pending++] = value;
+        if (pending == BATCH) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        Arrays.sort(batch, 0, pending);
+        if (merged + pending > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, merged + pending));
+        }
+        int i = merged - 1;
+        int j = pending - 1;
+        for (int k = merged + pending - 1; j >= 0; k--) {
+            values[k] = i >= 0 && values[i] > batch[j] ? values[i--] : batch[j--];
+        }
+        merged += pending;
+        pending = 0;
+    }
+
+    @Override
+    public int size() {
+        return merged + pending;
+    }
+
+    /** Fonde in dest anche il lotto in corso, su una copia: lo stato della struttura non cambia. */
+    @Override
+    public void copyTo(int[] dest) {
+        int[] tail = Arrays.copyOf(batch, pending);
+        Arrays.sort(tail);
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged + pending; k++) {
+            dest[k] = j == pending || i < merged && values[i] <= tail[j] ? values[i++] : tail[j++];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.sortingvisualizer;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Renderer su Canvas: ogni pannello ha un solo Canvas riutilizzato, ridisegnato per intero
+ * a ogni frame senza creare nodi. Le etichette di valore e indice si disegnano solo
+ * quando le barre sono abbastanza larghe da contenerle. Con piu' elementi che pixel
+ * disegna invece il riassunto per colonne di {@link PixelColumns}.
+ */
+class CanvasBarRenderer implements BarRenderer {
+    
+    private static final double MIN_LABEL_WIDTH = 14;
+    private static final int SHADES = 32;
+    private static final Font VALUE_FONT = Font.font("Consolas", 10);
+    private static final Font INDEX_FONT = Font.font("Consolas", 9);
+    private static final Color VALUE_COLOR = Color.web("#FFFFFF", 0.9);
+    private static final Color INDEX_COLOR = Color.web("#CCCCCC", 0.7);
+    private static final Color ACTIVE_STROKE = Color.web("#FFFF00");
+    // opacita' della banda tra minimo e massimo di una colonna, sotto la barra della media
+    private static final double BAND_ALPHA = 0.35;
+    
+    private final Map<Pane, Canvas> canvases = new IdentityHashMap<>();
+    private final Map<Color, Color[]> shades = new IdentityHashMap<>();
+    private Color[] workerColors = new Color[0];
+    
+    @Override
+    public String getName() {
+        return "Canvas";
+    }
+    
+    @Override
+    public void render(Pane pane, int[] data, int firstActive, int secondActive, int[] workers,
+                       Color algColor, boolean blinkBars, boolean isCompleted) {
+        Canvas canvas = canvasFor(pane);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (data.length == 0) return;
+        
+        double paneWidth = pane.getPrefWidth() - 20;
+        double paneHeight = pane.getPrefHeight() - 40;
+        double barWidth = paneWidth / data.length;
+        double gap = barWidth > 4 ? 2 : 0;
+        boolean drawLabels = barWidth >= MIN_LABEL_WIDTH;
+        // altezze misurate dal minimo tra zero e il valore piu' basso: anche i negativi hanno una barra
+        int minValue = 0;
+        int maxValue = 1;
+        for (int value : data) {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+        double span = (double) maxValue - minValue;
+        Color[] palette = shadesOf(algColor);
+        double blinkAlpha = blinkBars && !isCompleted ? BarRenderer.blinkOpacity(System.nanoTime()) : 1.0;
+        
+        for (int i = 0; i < data.length; i++) {
+            int value = data[i];
+            double level = (value - (double) minValue) / span;
+            double barHeight = level * paneHeight;
+            double x = i * barWidth + 10;
+            double y = paneHeight - barHeight + 10;
+            boolean active = i == firstActive || i == secondActive;
+            
+            gc.setGlobalAlpha(active ? 1.0 : blinkAlpha);
+            int shade = (int) (level * (SHADES - 1));
+            gc.setFill(workers[i] > 0 ? shadesOf(workerColor(workers[i] - 1))[shade] : palette[shade]);
+            gc.fillRect(x, y, Math.max(1, barWidth - gap), barHeight);
+            if (active) {
+                gc.setStroke(ACTIVE_STROKE);
+                gc.setLineWidth(3);
+                gc.strokeRect(x, y, Math.max(1, barWidth - gap), barHeight);
+            } else if (gap > 0) {
+                gc.setStroke(Color.DARKGRAY);
+                gc.setLineWidth(0.5);
+                gc.strokeRect(x, y, barWidth - gap, barHeight);
+            }
+            
+            if (drawLabels) {
+                gc.setGlobalAlpha(1.0);
+                gc.setFont(VALUE_FONT);
+                gc.setFill(VALUE_COLOR);
+                gc.fillText(String.valueOf(value), x + barWidth / 2 - 5, y - 5);
+                gc.setFont(INDEX_FONT);
+                gc.setFill(INDEX_COLOR);
+                gc.fillText(String.valueOf(i), x + barWidth / 2 - 3, paneHeight + 25);
+            }
+        }
+        gc.setGlobalAlpha(1.0);
+    }
+    
+    /**
+     * Disegna una colonna per pixel: una banda tenue dal minimo al massimo degli elementi
+     * che vi cadono e una barra piena fino alla loro media. Gli indici attivi evidenziano
+     * la propria colonna. Il costo dipende solo dal numero di colonne.
+     */
+    void renderColumns(Pane pane, PixelColumns columns, int firstActive, int secondActive,
+                       Color algColor, boolean blinkBars, boolean isCompleted) {
+        Canvas canvas = canvasFor(pane);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        
+        int count = columns.columns();
+        double paneWidth = pane.getPrefWidth() - 20;
+        double paneHeight = pane.getPrefHeight() - 40;
+        double columnWidth = paneWidth / count;
+        int minValue = 0;
+        int maxValue = 1;
+        for (int c = 0; c < count; c++) {
+            minValue = Math.min(minValue, columns.min(c));
+            maxValue = Math.max(maxValue, columns.max(c));
+        }
+        double span = (double) maxValue - minValue;
+        Color[] palette = shadesOf(algColor);
+        double blinkAlpha = blinkBars && !isCompleted ? BarRenderer.blinkOpacity(System.nanoTime()) : 1.0;
+        
+        // prima tutte le bande e poi tutte le medie, cosi' l'opacita' cambia due volte sole
+        gc.setGlobalAlpha(BAND_ALPHA * blinkAlpha);
+        for (int c = 0; c < count; c++) {
+            double low = (columns.min(c) - (double) minValue) / span;
+            double high = (columns.max(c) - (double) minValue) / span;
+            gc.setFill(columnShade(columns, c, palette, high));
+            gc.fillRect(c * columnWidth + 10, paneHeight * (1 - high) + 10,
+                        columnWidth, Math.max(1, (high - low) * paneHeight));
+        }
+        gc.setGlobalAlpha(blinkAlpha);
+        for (int c = 0; c < count; c++) {
+            double level = (columns.mean(c) - minValue) / span;
+            gc.setFill(columnShade(columns, c, palette, level));
+            gc.fillRect(c * columnWidth + 10, paneHeight * (1 - level) + 10, columnWidth, level * paneHeight);
+        }
+        
+        gc.setGlobalAlpha(1.0);
+        gc.setStroke(ACTIVE_STROKE);
+        gc.setLineWidth(1);
+        markColumn(gc, columns, firstActive, columnWidth, paneHeight);
+        markColumn(gc, columns, secondActive, columnWidth, paneHeight);
+    }
+    
+    private static void markColumn(GraphicsContext gc, PixelColumns columns, int index,
+                                   double columnWidth, double paneHeight) {
+        if (index != SortEventBuffer.NO_INDEX) {
+            double x = columns.column(index) * columnWidth + 10 + columnWidth / 2;
+            gc.strokeLine(x, 10, x, paneHeight + 10);
+        }
+    }
+    
+    private Color columnShade(PixelColumns columns, int column, Color[] palette, double level) {
+        int shade = (int) (level * (SHADES - 1));
+        int worker = columns.worker(column);
+        return worker > 0 ? shadesOf(workerColor(worker - 1))[shade] : palette[shade];
+    }
+    
+    private Canvas canvasFor(Pane pane) {
+        Canvas canvas = canvases.get(pane);
+        if (canvas == null) {
+            canvas = new Canvas(pane.getPrefWidth(), pane.getPrefHeight());
+            canvases.put(pane, canvas);
+        }
+        // se prima c'era l'altro renderer, il pannello contiene ancora i suoi nodi
+        if (pane.getChildren().size() != 1 || pane.getChildren().get(0) != canvas) {
+            pane.getChildren().setAll(canvas);
+        }
+        return canvas;
+    }
+    
+    private Color workerColor(int worker) {
+        if (worker >= workerColors.length) {
+            Color[] grown = Arrays.copyOf(workerColors, worker + 1);
+            for (int w = workerColors.length; w < grown.length; w++) {
+                grown[w] = BarRenderer.workerColor(w);
+            }
+            workerColors = grown;
+        }
+        return workerColors[worker];
+    }
+    
+    /** Sfumature precalcolate del colore dell'algoritmo: piu' chiare per i valori piu' alti. */
+    private Color[] shadesOf(Color algColor) {
+        Color[] palette = shades.get(algColor);
+        if (palette == null) {
+            palette = new Color[SHADES];
+            for (int s = 0; s < SHADES; s++) {
+                double intensity = 0.6 + (0.4 * s / (SHADES - 1));
+                palette[s] = Color.color(
+                    algColor.getRed() * intensity,
+                    algColor.getGreen() * intensity,
+                    algColor.getBlue() * intensity
+                );
+            }
+            shades.put(algColor, palette);
+        }
+        return palette;
+    }
+}
@@ -0,0 +1,182 @@
+package com.sortingvisualizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Identificativo di un dataset: seme, dimensione, intervallo di valori (estremi inclusi)
+ * e distribuzione. Lo stesso identificativo genera sempre lo stesso array, su qualunque
+ * macchina e con qualunque numero di core, per cui basta annotarlo per rieseguire un confronto.
+ */
+public final class DatasetSpec {
+
+    static final int FEW_UNIQUE_VALUES = 16;
+    // blocchi di dimensione fissa: il contenuto dipende solo dal generatore radice, non dai core
+    private static final int FILL_CHUNK = 1 << 18;
+
+    private final long seed;
+    private final int size;
+    private final int minValue;
+    private final int maxValue;
+    private final Distribution distribution;
+
+    public DatasetSpec(long seed, int size, int minValue, int maxValue, Distribution distribution) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Dimensione negativa: " + size);
+        }
+        if (minValue > maxValue) {
+            throw new IllegalArgumentException("Intervallo vuoto: " + minValue + " > " + maxValue);
+        }
+        this.seed = seed;
+        this.size = size;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.distribution = distribution;
+    }
+
+    /** Un seme nuovo, da un generatore non deterministico. */
+    public static long randomSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMinValue() {
+        return minValue;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    /** Numero di valori distinti ammessi dall'intervallo. */
+    long span() {
+        return (long) maxValue - minValue + 1;
+    }
+
+    /**
+     * Genera il dataset in parallelo a blocchi di dimensione fissa. Ogni blocco ha il suo
+     * SplittableRandom, ricavato in sequenza dal generatore radice: nessun generatore e'
+     * condiviso tra thread e il risultato non dipende da quanti core partecipano.
+     */
+    public int[] generate() {
+        int[] data = new int[size];
+        int chunks = (size + FILL_CHUNK - 1) / FILL_CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] chunkRandoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            chunkRandoms[c] = root.split();
+        }
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * FILL_CHUNK;
+            fill(data, 0, from, Math.min(data.length, from + FILL_CHUNK), chunkRandoms[c]);
+        });
+        return data;
+    }
+
+    /**
+     * Scrive il dataset in un file di int big-endian, lo stesso contenuto di {@link #generate()},
+     * un blocco alla volta: serve per dataset piu' grandi dello heap, da ordinare con
+     * {@link ExternalMergeSort}.
+     */
+    public void writeTo(Path file) throws IOException {
+        int[] chunk = new int[Math.min(size, FILL_CHUNK)];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(chunk.length * Integer.BYTES);
+        SplittableRandom root = new SplittableRandom(seed);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int from = 0; from < size; from += FILL_CHUNK) {
+                int to = Math.min(size, from + FILL_CHUNK);
+                fill(chunk, from, from, to, root.split());
+                buffer.clear();
+                buffer.asIntBuffer().put(chunk, 0, to - from);
+                buffer.limit((to - from) * Integer.BYTES);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+    }
+
+    /** Riempie le posizioni [from, to) del dataset; data[0] corrisponde alla posizione base. */
+    private void fill(int[] data, int base, int from, int to, SplittableRandom random) {
+        long span = span();
+        switch (distribution) {
+            case SORTED:
+                for (int i = from; i < to; i++) {
+                    data[i - base] = (int) (minValue + (long) i * span / size);
+                }
+                break;
+            case REVERSED:
+                for (int i = from; i < to; i++) {
+                    data[i - base] = (int) (minValue + (long) (size - 1 - i) * span / size);
+                }
+                break;
+            case FEW_UNIQUE:
+                int levels = (int) Math.min(FEW_UNIQUE_VALUES, span);
+                for (int i = from; i < to; i++) {
+                    data[i - base] = (int) (minValue + random.nextInt(levels) * span / levels);
+                }
+                break;
+            default:
+                fillUniform(data, from - base, to - base, random, span);
+                break;
+        }
+    }
+
+    private void fillUniform(int[] data, int from, int to, SplittableRandom random, long span) {
+        if (span <= Integer.MAX_VALUE) {
+            for (int i = from; i < to; i++) {
+                data[i] = minValue + random.nextInt((int) span);
+            }
+        } else if (span == 1L << 32) {
+            for (int i = from; i < to; i++) {
+                data[i] = random.nextInt();
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                data[i] = (int) random.nextLong(minValue, (long) maxValue + 1);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DatasetSpec)) return false;
+        DatasetSpec other = (DatasetSpec) o;
+        return seed == other.seed && size == other.size && minValue == other.minValue
+            && maxValue == other.maxValue && distribution == other.distribution;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Long.hashCode(seed);
+        h = 31 * h + size;
+        h = 31 * h + minValue;
+        h = 31 * h + maxValue;
+        return 31 * h + distribution.hashCode();
+    }
+
+    /** Forma compatta, per esempio {@code seed=42 n=1000 [1,40] RANDOM}. */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "seed=%d n=%d [%d,%d] %s", seed, size, minValue, maxValue, distribution);
+    }
+}
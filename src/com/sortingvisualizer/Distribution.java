@@ -0,0 +1,25 @@
+package com.sortingvisualizer;
+
+/**
+ * Forma dei dataset generati da {@link DatasetSpec}, sempre entro l'intervallo di valori richiesto.
+ */
+public enum Distribution {
+    /** Valori uniformi nell'intervallo. */
+    RANDOM("Casuale"),
+    /** Valori equidistanti in ordine crescente. */
+    SORTED("Ordinato"),
+    /** Valori equidistanti in ordine decrescente. */
+    REVERSED("Inverso"),
+    /** Valori casuali scelti tra {@value DatasetSpec#FEW_UNIQUE_VALUES} livelli equidistanti. */
+    FEW_UNIQUE("Pochi distinti");
+
+    private final String label;
+
+    Distribution(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,404 @@
+package com.sortingvisualizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ordinamento esterno di un file di int in big-endian (come li scrive DataOutputStream),
+ * per file piu' grandi dello heap. Prima il file si legge a run di {@code runLength} elementi,
+ * ciascuno ordinato in memoria con il percorso senza probe di Radix Sort e scritto in un file
+ * temporaneo; poi i run si fondono a gruppi di {@code fanIn} con un albero dei perdenti,
+ * in piu' passate se sono piu' di {@code fanIn}. Tutto l'I/O passa da FileChannel con buffer
+ * diretti grandi e sequenziali, dimensionati sullo heap.
+ *
+ * I contatori di avanzamento si leggono da qualunque thread mentre l'ordinamento procede.
+ * I file temporanei stanno in una cartella accanto al file di uscita e si cancellano
+ * man mano che i run vengono fusi, e comunque alla fine.
+ */
+public final class ExternalMergeSort {
+
+    /** Run fusi insieme in un passaggio. */
+    public static final int DEFAULT_FAN_IN = 64;
+    private static final int MIN_RUN_LENGTH = 1 << 16;
+    private static final int MAX_RUN_LENGTH = 1 << 27;
+    private static final int MIN_IO_BUFFER = 64 << 10;
+    private static final int MAX_IO_BUFFER = 4 << 20;
+
+    private final Path input;
+    private final Path output;
+    private final int runLength;
+    private final int fanIn;
+    private final int ioBuffer;
+    private volatile boolean cancelled;
+    private volatile int runs;
+    private volatile int mergePass;
+    private volatile int mergePasses;
+    private volatile long inputBytes;
+    private volatile long bytesRead;
+    private volatile long bytesWritten;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+    ExternalMergeSort(Path input, Path output, int runLength, int fanIn) {
+        if (runLength < 1 || fanIn < 2) {
+            throw new IllegalArgumentException("Run di " + runLength + " elementi, fusione a " + fanIn + " vie");
+        }
+        this.input = input;
+        this.output = output;
+        this.runLength = runLength;
+        this.fanIn = fanIn;
+        // i buffer di una fusione (fanIn ingressi e un'uscita) occupano al piu' un ottavo dello heap
+        long perBuffer = Runtime.getRuntime().maxMemory() / 8 / (fanIn + 1);
+        this.ioBuffer = (int) Math.max(MIN_IO_BUFFER, Math.min(MAX_IO_BUFFER, perBuffer)) & ~(Integer.BYTES - 1);
+    }
+
+    /**
+     * Run predefinito: un run e il buffer di Radix Sort insieme occupano circa un quarto dello heap.
+     */
+    static int defaultRunLength() {
+        long elements = Runtime.getRuntime().maxMemory() / 4 / (2 * Integer.BYTES);
+        return (int) Math.max(MIN_RUN_LENGTH, Math.min(MAX_RUN_LENGTH, elements));
+    }
+
+    /** Interrompe l'ordinamento al prossimo buffer; i file temporanei e l'uscita parziale si cancellano. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Si completa a ordinamento finito, o eccezionalmente per un errore o un annullamento. */
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    void setCompletion(CompletableFuture<Void> completion) {
+        this.completion = completion;
+    }
+
+    /** Run ordinati scritti finora. */
+    public int getRuns() {
+        return runs;
+    }
+
+    /** Passata di fusione in corso, da 1; 0 mentre si creano i run. */
+    public int getMergePass() {
+        return mergePass;
+    }
+
+    /** Passate di fusione necessarie, note dopo la creazione dei run. */
+    public int getMergePasses() {
+        return mergePasses;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Tempo trascorso dall'inizio, fermo alla fine dell'ordinamento. */
+    public long getElapsedNanos() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - start;
+    }
+
+    /** Byte letti e scritti al secondo, in MB, dall'inizio dell'ordinamento. */
+    public double getMegabytesPerSecond() {
+        long nanos = getElapsedNanos();
+        return nanos == 0 ? 0 : (bytesRead + bytesWritten) / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    void execute() {
+        startNanos = System.nanoTime();
+        Path temporary = null;
+        boolean completed = false;
+        try {
+            inputBytes = Files.size(input);
+            if (inputBytes % Integer.BYTES != 0) {
+                throw new IllegalArgumentException("Il file non contiene un numero intero di int: " + inputBytes + " byte");
+            }
+            Path directory = output.toAbsolutePath().getParent();
+            temporary = Files.createTempDirectory(directory, "sorting-runs-");
+            List<Path> pending = createRuns(temporary);
+            mergePasses = passesFor(pending.size());
+            if (pending.size() == 1) {
+                Files.move(pending.get(0), output, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                ByteBuffer[] buffers = new ByteBuffer[fanIn + 1];
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = ByteBuffer.allocateDirect(ioBuffer);
+                }
+                while (pending.size() > fanIn) {
+                    mergePass++;
+                    // si fonde solo quanto basta perche' alla passata dopo restino al piu' fanIn run,
+                    // cominciando dai piu' piccoli: gli altri passano cosi' come sono
+                    List<Path> merged = new ArrayList<>();
+                    int from = 0;
+                    while (pending.size() - from + merged.size() > fanIn) {
+                        int group = Math.min(fanIn, pending.size() - from + merged.size() - fanIn + 1);
+                        int to = Math.min(pending.size(), from + group);
+                        if (to - from < 2) {
+                            break;
+                        }
+                        Path target = Files.createTempFile(temporary, "merge-", ".run");
+                        merge(pending.subList(from, to), target, buffers);
+                        merged.add(target);
+                        from = to;
+                    }
+                    List<Path> next = new ArrayList<>(pending.subList(from, pending.size()));
+                    next.addAll(merged);
+                    pending = next;
+                }
+                mergePass++;
+                merge(pending, output, buffers);
+            }
+            completed = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            endNanos = System.nanoTime();
+            if (temporary != null) {
+                deleteDirectory(temporary);
+            }
+            if (!completed) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException e) {
+                    // resta l'uscita parziale: l'errore originale e' piu' utile di questo
+                }
+            }
+        }
+    }
+
+    private List<Path> createRuns(Path directory) throws IOException {
+        List<Path> created = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ioBuffer);
+        long remaining = inputBytes / Integer.BYTES;
+        // un solo buffer per tutti i run: solo l'ultimo puo' essere piu' corto e ne usa un prefisso
+        int[] run = new int[(int) Math.min(runLength, remaining)];
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            do {
+                int length = (int) Math.min(run.length, remaining);
+                int count = 0;
+                while (count < length) {
+                    buffer.clear();
+                    buffer.limit(Math.min(buffer.capacity(), (length - count) * Integer.BYTES));
+                    readFully(in, buffer);
+                    buffer.flip();
+                    int read = buffer.remaining() / Integer.BYTES;
+                    buffer.asIntBuffer().get(run, count, read);
+                    count += read;
+                    bytesRead += buffer.remaining();
+                    checkCancelled();
+                }
+                remaining -= length;
+                SortingBusinessLogic.sortHeadless("Radix Sort", new IntArray(run, length, SortProbe.NO_OP));
+                Path path = Files.createTempFile(directory, "run-", ".run");
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    for (int from = 0; from < length; ) {
+                        int chunk = Math.min(length - from, buffer.capacity() / Integer.BYTES);
+                        buffer.clear();
+                        buffer.asIntBuffer().put(run, from, chunk);
+                        buffer.limit(chunk * Integer.BYTES);
+                        writeFully(out, buffer);
+                        from += chunk;
+                    }
+                }
+                created.add(path);
+                runs = created.size();
+            } while (remaining > 0);
+        }
+        return created;
+    }
+
+    /**
+     * Fonde i run indicati nel file di destinazione e li cancella. L'ultimo buffer di buffers
+     * raccoglie l'uscita, gli altri fanno da buffer di lettura dei run.
+     */
+    private void merge(List<Path> group, Path target, ByteBuffer[] buffers) throws IOException {
+        RunReader[] readers = new RunReader[group.size()];
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new RunReader(FileChannel.open(group.get(i), StandardOpenOption.READ), buffers[i]);
+            }
+            ByteBuffer buffer = buffers[fanIn];
+            buffer.clear();
+            LoserTree tree = new LoserTree(readers);
+            for (int winner = tree.winner(); !readers[winner].exhausted; winner = tree.replay(winner)) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    writeFully(out, buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(readers[winner].current);
+                readers[winner].advance();
+            }
+            buffer.flip();
+            writeFully(out, buffer);
+        } finally {
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    reader.channel.close();
+                }
+            }
+        }
+        for (Path run : group) {
+            Files.delete(run);
+        }
+    }
+
+    /** Passate a {@code fanIn} vie per ridurre {@code runCount} run a uno solo. */
+    private int passesFor(int runCount) {
+        int passes = 0;
+        for (int remaining = runCount; remaining > 1; remaining = (remaining + fanIn - 1) / fanIn) {
+            passes++;
+        }
+        return passes;
+    }
+
+    private void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+            // FileChannel puo' leggere meno del richiesto anche prima della fine del file
+        }
+    }
+
+    private void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        checkCancelled();
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // file temporanei: al peggio restano nella cartella di uscita
+        }
+    }
+
+    /** Lettore sequenziale di un run, un buffer alla volta; current e' l'elemento in testa. */
+    private final class RunReader {
+        final FileChannel channel;
+        final ByteBuffer buffer;
+        int current;
+        boolean exhausted;
+
+        RunReader(FileChannel channel, ByteBuffer buffer) throws IOException {
+            this.channel = channel;
+            this.buffer = buffer;
+            buffer.clear();
+            buffer.flip();
+            advance();
+        }
+
+        void advance() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                readFully(channel, buffer);
+                buffer.flip();
+                bytesRead += buffer.remaining();
+                if (!buffer.hasRemaining()) {
+                    exhausted = true;
+                    return;
+                }
+            }
+            current = buffer.getInt();
+        }
+    }
+
+    /**
+     * Albero dei perdenti sui k run: ogni nodo interno ricorda chi ha perso il confronto li',
+     * la radice (nodo 0) chi ha vinto. Dopo aver consumato il vincitore basta rigiocare i
+     * log2(k) confronti sul suo cammino verso la radice, contro i perdenti gia' memorizzati.
+     * I run esauriti perdono contro tutti.
+     */
+    private static final class LoserTree {
+        private final RunReader[] readers;
+        private final int[] tree;
+
+        LoserTree(RunReader[] readers) {
+            this.readers = readers;
+            this.tree = new int[readers.length];
+            tree[0] = build(1);
+        }
+
+        int winner() {
+            return tree[0];
+        }
+
+        /** Rigioca i confronti del run indicato, che ha appena cambiato elemento in testa. */
+        int replay(int run) {
+            int winner = run;
+            for (int node = (run + readers.length) >>> 1; node > 0; node >>>= 1) {
+                if (beats(tree[node], winner)) {
+                    int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = winner;
+            return winner;
+        }
+
+        // foglie ai nodi k..2k-1, come in un heap implicito: funziona per qualunque k
+        private int build(int node) {
+            if (node >= readers.length) {
+                return node - readers.length;
+            }
+            int left = build(2 * node);
+            int right = build(2 * node + 1);
+            if (beats(left, right)) {
+                tree[node] = right;
+                return left;
+            }
+            tree[node] = left;
+            return right;
+        }
+
+        private boolean beats(int a, int b) {
+            RunReader x = readers[a];
+            RunReader y = readers[b];
+            if (x.exhausted || y.exhausted) {
+                return !x.exhausted;
+            }
+            return x.current < y.current || (x.current == y.current && a < b);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Store in memoria a blocchi da 64 KB: crescere non ricopia i byte gia' scritti.
+ */
+final class HeapTraceStore implements TraceStore {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private byte[][] chunks = new byte[8][];
+    private long size;
+
+    @Override
+    public void put(byte value) {
+        int chunk = (int) (size >>> CHUNK_BITS);
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new byte[CHUNK_SIZE];
+        }
+        chunks[chunk][(int) (size & CHUNK_MASK)] = value;
+        size++;
+    }
+
+    @Override
+    public byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)][(int) (position & CHUNK_MASK)];
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        chunks = null;
+    }
+}
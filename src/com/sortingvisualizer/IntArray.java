@@ -0,0 +1,64 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Array di interi primitivi su cui lavorano gli algoritmi: letture e scritture
+ * non passano per il boxing e vengono segnalate al {@link SortProbe} dell'array.
+ * Chi deve conservare lo stato ne fa una copia con {@link #toArray()} o {@link #copyTo(int[])}.
+ */
+public final class IntArray {
+
+    private final int[] values;
+    private final int length;
+    private final SortProbe probe;
+
+    IntArray(int[] values) {
+        this(values, values.length, SortProbe.NO_OP);
+    }
+
+    IntArray(int[] values, SortProbe probe) {
+        this(values, values.length, probe);
+    }
+
+    /** Solo i primi length valori: chi riusa un buffer piu' grande non deve copiarlo. */
+    IntArray(int[] values, int length, SortProbe probe) {
+        this.values = values;
+        this.length = length;
+        this.probe = probe;
+    }
+
+    public int get(int index) {
+        probe.read(index);
+        return values[index];
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public void copyTo(int[] dest) {
+        System.arraycopy(values, 0, dest, 0, length);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, length);
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+        probe.write(index, value);
+    }
+
+    void swap(int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+        probe.swap(i, j);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,72 @@
+package com.sortingvisualizer;
+
+/**
+ * Istogramma log-lineare di latenze in nanosecondi: 32 sottointervalli per ogni potenza di due,
+ * quindi percentili con un errore relativo sotto il 3% in pochi KB, qualunque sia il numero
+ * di campioni. Sotto i 64 ns i valori sono esatti. Confinato nel thread che registra.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BITS) << SUB_BITS];
+    private long count;
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+        counts[index(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    /** Somma delle latenze registrate. */
+    long total() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    /**
+     * Latenza sotto la quale cade la frazione quantile dei campioni (0.99 per il p99),
+     * arrotondata per eccesso al limite del suo sottointervallo.
+     */
+    long percentile(double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,102 @@
+package com.sortingvisualizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Store su un file temporaneo, scritto e letto attraverso segmenti mappati in memoria di
+ * dimensione fissa: i byte non passano dallo heap, per cui una traccia puo' superarlo di molto.
+ * Chi scrive tiene mappato solo il segmento corrente; chi legge mappa un segmento la prima
+ * volta che lo tocca. Il file si cancella alla chiusura (o all'uscita dalla JVM).
+ */
+final class MappedTraceStore implements TraceStore {
+
+    private static final int SEGMENT_BITS = 26; // 64 MB
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer writeSegment;
+    private int writeSegmentIndex = -1;
+    private MappedByteBuffer[] readSegments = new MappedByteBuffer[16];
+    private long size;
+
+    MappedTraceStore(String prefix) {
+        try {
+            path = Files.createTempFile(prefix, ".trace");
+            path.toFile().deleteOnExit();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void put(byte value) {
+        int segment = (int) (size >>> SEGMENT_BITS);
+        if (segment != writeSegmentIndex) {
+            // il segmento precedente resta nel file: se serve, lo rimappa chi legge
+            writeSegment = map(segment, FileChannel.MapMode.READ_WRITE);
+            writeSegmentIndex = segment;
+        }
+        writeSegment.put((int) (size & SEGMENT_MASK), value);
+        size++;
+    }
+
+    @Override
+    public byte get(long position) {
+        int segment = (int) (position >>> SEGMENT_BITS);
+        if (segment >= readSegments.length) {
+            readSegments = Arrays.copyOf(readSegments, Math.max(segment + 1, readSegments.length * 2));
+        }
+        MappedByteBuffer buffer = readSegments[segment];
+        if (buffer == null) {
+            buffer = map(segment, FileChannel.MapMode.READ_ONLY);
+            readSegments[segment] = buffer;
+        }
+        return buffer.get((int) (position & SEGMENT_MASK));
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    private MappedByteBuffer map(int segment, FileChannel.MapMode mode) {
+        try {
+            return channel.map(mode, (long) segment << SEGMENT_BITS, SEGMENT_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Chiude il canale e cancella il file. Java 8 non ha un modo pubblico di smappare un segmento:
+     * resta mappato finche' il GC non ne raccoglie il buffer, e su Windows un file mappato non si
+     * cancella. In quel caso si ripiega su deleteOnExit, che fallisce a sua volta se all'uscita
+     * qualche segmento e' ancora vivo: il file rimane allora nella cartella temporanea.
+     */
+    @Override
+    public void close() {
+        writeSegment = null;
+        readSegments = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // il canale non serve piu': conta solo cancellare il file
+        }
+        File file = path.toFile();
+        if (!file.delete() && file.exists()) {
+            // gia' registrato alla creazione, ma la registrazione e' idempotente: resta esplicito
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.sortingvisualizer;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renderer a nodi: a ogni aggiornamento ricostruisce un Rectangle e due Text per elemento.
+ * Le barre che lampeggiano restano in un elenco per pannello, cosi' l'orologio comune
+ * ne cambia l'opacita' tra un aggiornamento e l'altro senza animazioni per barra.
+ */
+class NodeBarRenderer implements BarRenderer {
+    
+    private final Map<Pane, List<Rectangle>> blinking = new IdentityHashMap<>();
+    
+    @Override
+    public String getName() {
+        return "Nodi";
+    }
+    
+    @Override
+    public void render(Pane pane, int[] data, int firstActive, int secondActive, int[] workers,
+                       Color algColor, boolean blinkBars, boolean isCompleted) {
+        pane.getChildren().clear();
+        List<Rectangle> blinkingBars = blinking.computeIfAbsent(pane, p -> new ArrayList<>());
+        blinkingBars.clear();
+        if (data.length == 0) return;
+        
+        double paneWidth = pane.getPrefWidth() - 20;
+        double paneHeight = pane.getPrefHeight() - 40;
+        double barWidth = paneWidth / data.length;
+        // altezze misurate dal minimo tra zero e il valore piu' basso: anche i negativi hanno una barra
+        int minValue = 0;
+        int maxValue = 1;
+        for (int value : data) {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+        double span = (double) maxValue - minValue;
+        double blinkOpacity = BarRenderer.blinkOpacity(System.nanoTime());
+        
+        for (int i = 0; i < data.length; i++) {
+            int value = data[i];
+            double level = (value - (double) minValue) / span;
+            double barHeight = level * paneHeight;
+            Rectangle bar = new Rectangle();
+            bar.setWidth(barWidth - 2);
+            bar.setHeight(barHeight);
+            bar.setX(i * barWidth + 10);
+            bar.setY(paneHeight - barHeight + 10);
+            
+            double intensity = 0.6 + (0.4 * level);
+            Color baseColor = workers[i] > 0 ? BarRenderer.workerColor(workers[i] - 1) : algColor;
+            bar.setFill(Color.color(
+                baseColor.getRed() * intensity,
+                baseColor.getGreen() * intensity,
+                baseColor.getBlue() * intensity
+            ));
+            
+            if (i == firstActive || i == secondActive) {
+                bar.getStyleClass().add("active-bar");
+            } else {
+                bar.setStroke(Color.DARKGRAY);
+                bar.setStrokeWidth(0.5);
+                // lampeggia solo se abilitato e se l'algoritmo non ha completato
+                if (blinkBars && !isCompleted) {
+                    bar.setOpacity(blinkOpacity);
+                    blinkingBars.add(bar);
+                }
+            }
+            
+            Text valueText = new Text(String.valueOf(value));
+            valueText.setX(i * barWidth + barWidth / 2 - 5 + 10);
+            valueText.setY(paneHeight - barHeight + 5);
+            valueText.setFont(Font.font("Consolas", 10));
+            valueText.setFill(Color.web("#FFFFFF", 0.9));
+            
+            Text indexText = new Text(String.valueOf(i));
+            indexText.setX(i * barWidth + barWidth / 2 - 3 + 10);
+            indexText.setY(paneHeight + 25);
+            indexText.setFont(Font.font("Consolas", 9));
+            indexText.setFill(Color.web("#CCCCCC", 0.7));
+            
+            pane.getChildren().addAll(bar, valueText, indexText);
+        }
+    }
+    
+    @Override
+    public boolean blink(Pane pane, double opacity) {
+        List<Rectangle> blinkingBars = blinking.get(pane);
+        if (blinkingBars != null) {
+            for (Rectangle bar : blinkingBars) {
+                bar.setOpacity(opacity);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package com.sortingvisualizer;
+
+/**
+ * Secchio di token che cadenza un thread di un algoritmo animato: si riempie alla frequenza
+ * richiesta fino a un frame di passi. Finche' ci sono token i passi non attendono; a secchio
+ * vuoto il thread dorme finche' non si riempie di nuovo, cioe' al piu' una volta per frame
+ * invece che a ogni passo. Il riempimento segue il tempo misurato, per cui i ritardi
+ * del risveglio non rallentano la cadenza.
+ * Confinato in un thread: nelle versioni parallele ogni worker ha il proprio.
+ */
+final class Pacer {
+
+    static final int FRAME_RATE = 60;
+
+    private final double stepsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    Pacer(double stepsPerSecond) {
+        this.stepsPerNano = stepsPerSecond / 1e9;
+        this.capacity = Math.max(1, stepsPerSecond / FRAME_RATE);
+        this.tokens = capacity;
+    }
+
+    /**
+     * Consuma il token di un passo. Restituisce 0 se c'era, altrimenti i nanosecondi
+     * da attendere prima di riprovare.
+     */
+    long acquire() {
+        if (tokens < 1) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * stepsPerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return (long) Math.ceil((capacity - tokens) / stepsPerNano);
+            }
+        }
+        tokens--;
+        return 0;
+    }
+}
@@ -0,0 +1,206 @@
+package com.sortingvisualizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Registra le operazioni di un algoritmo nel suo buffer di eventi,
+ * notifica il callback, si fa cadenzare dal {@link Pacer} del thread e passa dal punto di controllo
+ * dell'esecuzione (pausa, passo singolo, annullamento). Le letture non producono eventi.
+ * Il cronometro parte quando il probe viene creato, sul thread dell'algoritmo subito prima di avviarlo,
+ * e non conta le pause. Nelle versioni parallele i worker registrano in contemporanea, ciascuno con
+ * la propria pausa: il buffer e' sincronizzato e l'inizio, final, e' visibile a ogni worker.
+ *
+ * Per non contendersi il lock del buffer a ogni evento, ogni worker accumula i propri eventi
+ * in un lotto e li consegna tutti insieme: a lotto pieno, prima di dormire per la cadenza o di
+ * fermarsi in pausa, e a ogni {@link #sync()}, che i task paralleli chiamano prima di un fork e
+ * alla fine. Cosi' gli eventi di un task entrano nel buffer prima di quelli dei task che ne
+ * dipendono. Il thread proprietario consegna ogni evento subito.
+ *
+ * Con frequenza zero l'algoritmo procede a piena velocita': serve a registrare solo la traccia.
+ *
+ * Conta anche ogni operazione in {@link SortCounters} confinati nel thread: il thread che ha
+ * creato il probe usa i propri, i worker paralleli ne ricevono uno ciascuno.
+ */
+final class PacingProbe implements SortProbe {
+
+    // eventi per lotto di un worker, prima della consegna al buffer
+    private static final int WORKER_BATCH = 256;
+
+    private final String algorithm;
+    private final SortingCallback callback;
+    private final SortEventBuffer events;
+    private final double stepsPerSecond;
+    private final SortRun run;
+    private final SortRun.Cursor cursor;
+    private final Thread owner = Thread.currentThread();
+    private final SortCounters ownerCounters = new SortCounters();
+    private final List<SortCounters> workerCounters = new ArrayList<>();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(this::newWorker);
+    private final Pacer ownerPacer;
+    private final long startTime;
+
+    PacingProbe(String algorithm, SortingCallback callback, double stepsPerSecond, SortRun run, SortTrace trace,
+                boolean buffered, BackpressurePolicy backpressure) {
+        this.algorithm = algorithm;
+        this.events = new SortEventBuffer(trace, buffered, backpressure, run);
+        this.callback = callback;
+        this.stepsPerSecond = stepsPerSecond;
+        this.ownerPacer = stepsPerSecond > 0 ? new Pacer(stepsPerSecond) : null;
+        this.run = run;
+        this.cursor = run.newCursor();
+        this.startTime = run.activeNanos();
+    }
+
+    @Override
+    public void compare(int i, int j) {
+        counters().comparisons++;
+        record(SortEventBuffer.COMPARE, i, j);
+    }
+
+    @Override
+    public void read(int index) {
+        counters().reads++;
+    }
+
+    @Override
+    public void write(int index, int value) {
+        counters().writes++;
+        record(SortEventBuffer.WRITE, index, value);
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        counters().swaps++;
+        record(SortEventBuffer.SWAP, i, j);
+    }
+
+    @Override
+    public void range(int low, int high) {
+        Thread current = Thread.currentThread();
+        int worker = current instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) current).getPoolIndex() : 0;
+        if (current == owner) {
+            events.add(SortEventBuffer.range(worker), low, high, elapsed(), ownerCounters);
+            callback.onEvents(algorithm, events);
+        } else {
+            batch(workers.get(), SortEventBuffer.range(worker), low, high);
+        }
+        if (run.isCancelled()) throw new CancellationException();
+    }
+
+    @Override
+    public void sync() {
+        if (Thread.currentThread() != owner) {
+            flush(workers.get());
+        }
+    }
+
+    @Override
+    public void allocate(int elements) {
+        counters().allocate(elements);
+    }
+
+    @Override
+    public void release(int elements) {
+        counters().release(elements);
+    }
+
+    @Override
+    public void enter() {
+        counters().enter();
+    }
+
+    @Override
+    public void leave() {
+        counters().leave();
+    }
+
+    /**
+     * Chiamato dal thread proprietario a fine algoritmo: i worker hanno gia' terminato
+     * (join) e consegnato i loro lotti, quindi i loro contatori si possono leggere e pubblicare da qui.
+     */
+    void done() {
+        synchronized (workerCounters) {
+            for (SortCounters counters : workerCounters) {
+                events.publish(counters);
+            }
+        }
+        events.publish(ownerCounters);
+        events.add(SortEventBuffer.DONE, SortEventBuffer.NO_INDEX, SortEventBuffer.NO_INDEX, elapsed(), ownerCounters);
+        callback.onEvents(algorithm, events);
+    }
+
+    private void record(int op, int a, int b) {
+        Worker worker = null;
+        Pacer pacer = ownerPacer;
+        if (Thread.currentThread() == owner) {
+            events.add(op, a, b, elapsed(), ownerCounters);
+            callback.onEvents(algorithm, events);
+        } else {
+            worker = workers.get();
+            pacer = worker.pacer;
+            batch(worker, op, a, b);
+        }
+        if (stepsPerSecond > 0) {
+            long wait;
+            while ((wait = pacer.acquire()) > 0) {
+                if (worker != null) {
+                    flush(worker);
+                }
+                run.delay(wait);
+            }
+        }
+        if (worker != null && run.isPaused()) {
+            // in pausa, e a ogni passo singolo, l'interfaccia deve vedere fin dove e' arrivato
+            flush(worker);
+        }
+        run.checkpoint(cursor);
+    }
+
+    private void batch(Worker worker, int op, int a, int b) {
+        int[] batch = worker.batch;
+        batch[worker.size++] = op;
+        batch[worker.size++] = a;
+        batch[worker.size++] = b;
+        if (worker.size == batch.length) {
+            flush(worker);
+        }
+    }
+
+    private void flush(Worker worker) {
+        if (worker.size == 0) return;
+        events.addAll(worker.batch, worker.size, elapsed(), worker.counters);
+        worker.size = 0;
+        callback.onEvents(algorithm, events);
+    }
+
+    private SortCounters counters() {
+        return Thread.currentThread() == owner ? ownerCounters : workers.get().counters;
+    }
+
+    private long elapsed() {
+        return (run.activeNanos() - startTime) / 1_000_000L;
+    }
+
+    private Worker newWorker() {
+        Worker worker = new Worker(stepsPerSecond);
+        synchronized (workerCounters) {
+            workerCounters.add(worker.counters);
+        }
+        return worker;
+    }
+
+    /** Stato di un worker parallelo: contatori, cadenza ed eventi non ancora consegnati. */
+    private static final class Worker {
+        final SortCounters counters = new SortCounters();
+        final Pacer pacer;
+        final int[] batch = new int[WORKER_BATCH * 3];
+        int size;
+
+        Worker(double stepsPerSecond) {
+            this.pacer = new Pacer(stepsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.sortingvisualizer;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Particelle che salgono dal fondo della finestra, disegnate su un solo Canvas da un solo
+ * AnimationTimer. Il pool ha capacita' fissa ed e' fatto di array paralleli: una particella
+ * che esce o svanisce cede il posto all'ultima, e nessun frame crea nodi, transizioni o oggetti.
+ *
+ * Mentre un ordinamento e' in corso il livello cede il thread FX alle barre: se l'intervallo
+ * medio tra i frame supera il budget di 60 fps, si ridisegna un frame ogni 2, 4, 8 e infine
+ * ci si ferma del tutto; quando l'intervallo rientra, o l'ordinamento finisce, si risale un
+ * gradino al secondo. Le posizioni seguono il tempo trascorso, non il numero di frame.
+ */
+final class ParticleLayer extends Pane {
+
+    private static final int CAPACITY = 48;
+    private static final long SPAWN_INTERVAL = 300_000_000L;
+    private static final long FRAME_BUDGET = 1_000_000_000L / Pacer.FRAME_RATE;
+    private static final long ADJUST_INTERVAL = 1_000_000_000L;
+    // oltre questo passo il livello e' fermo: niente aggiornamenti ne' disegno
+    private static final int PAUSED_STRIDE = 16;
+    private static final Color PARTICLE_COLOR = Color.WHITE;
+    private static final double PARTICLE_ALPHA = 0.3;
+
+    private final Canvas canvas = new Canvas();
+    private final double[] x = new double[CAPACITY];
+    private final double[] y = new double[CAPACITY];
+    private final double[] radius = new double[CAPACITY];
+    private final double[] speed = new double[CAPACITY];
+    private final double[] age = new double[CAPACITY];
+    private final double[] fadeTime = new double[CAPACITY];
+    private int count;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame(now);
+        }
+    };
+    private boolean busy;
+    private long lastFrame;
+    private long lastDrawn;
+    private long lastSpawn;
+    private long lastAdjust;
+    private double averageInterval;
+    private int stride = 1;
+    private int skipped;
+
+    ParticleLayer() {
+        setMouseTransparent(true);
+        setPrefSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        getChildren().add(canvas);
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    /** Da chiamare all'inizio e alla fine di un ordinamento animato o di una riproduzione. */
+    void setBusy(boolean busy) {
+        this.busy = busy;
+    }
+
+    private void frame(long now) {
+        if (lastFrame != 0) {
+            long interval = now - lastFrame;
+            averageInterval = averageInterval == 0 ? interval : averageInterval * 0.9 + interval * 0.1;
+        }
+        lastFrame = now;
+        if (now - lastAdjust >= ADJUST_INTERVAL) {
+            lastAdjust = now;
+            adjustStride();
+        }
+        if (stride >= PAUSED_STRIDE || ++skipped < stride) {
+            return;
+        }
+        skipped = 0;
+
+        double elapsed = lastDrawn == 0 ? 0 : (now - lastDrawn) / 1e9;
+        lastDrawn = now;
+        if (now - lastSpawn >= SPAWN_INTERVAL) {
+            lastSpawn = now;
+            spawn();
+        }
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setFill(PARTICLE_COLOR);
+        int i = 0;
+        while (i < count) {
+            age[i] += elapsed;
+            y[i] -= speed[i] * elapsed;
+            double opacity = 0.7 * (1 - age[i] / fadeTime[i]);
+            if (opacity <= 0 || y[i] < -radius[i]) {
+                remove(i);
+                continue;
+            }
+            gc.setGlobalAlpha(PARTICLE_ALPHA * opacity);
+            gc.fillOval(x[i] - radius[i], y[i] - radius[i], 2 * radius[i], 2 * radius[i]);
+            i++;
+        }
+        gc.setGlobalAlpha(1.0);
+    }
+
+    private void adjustStride() {
+        boolean overBudget = busy && averageInterval > FRAME_BUDGET * 1.25;
+        if (overBudget && stride < PAUSED_STRIDE) {
+            stride *= 2;
+            if (stride >= PAUSED_STRIDE) {
+                // il canvas fermo resterebbe sopra i pannelli con le particelle congelate
+                canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                count = 0;
+                lastDrawn = 0;
+            }
+        } else if (!overBudget && stride > 1) {
+            stride /= 2;
+        }
+    }
+
+    private void spawn() {
+        if (count == CAPACITY) return;
+        double height = getHeight();
+        // come le vecchie transizioni: sale di tutta l'altezza in 6-10 s, svanisce in 6-10 s
+        x[count] = Math.random() * getWidth();
+        y[count] = height + 10;
+        radius[count] = 2 + Math.random() * 3;
+        speed[count] = (height + 20) / (6 + Math.random() * 4);
+        fadeTime[count] = 6 + Math.random() * 4;
+        age[count] = 0;
+        count++;
+    }
+
+    private void remove(int i) {
+        count--;
+        x[i] = x[count];
+        y[i] = y[count];
+        radius[i] = radius[count];
+        speed[i] = speed[count];
+        age[i] = age[count];
+        fadeTime[i] = fadeTime[count];
+    }
+}
@@ -0,0 +1,138 @@
+package com.sortingvisualizer;
+
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Misure per l'overlay delle prestazioni, raccolte dal thread FX a ogni pulse. Ogni secondo
+ * si chiude un campione: frame al secondo, intervallo medio e massimo tra i pulse (un pulse
+ * che sfora il budget allunga l'intervallo successivo), tempo di disegno, eventi prodotti
+ * ma non ancora applicati, passi prodotti, applicati e mostrati, heap e pause del GC.
+ * Gli ultimi {@value #HISTORY} campioni restano in un anello, da salvare in CSV.
+ */
+final class PerfMonitor {
+
+    static final int HISTORY = 600;
+    private static final long SAMPLE_INTERVAL = 1_000_000_000L;
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final Sample[] history = new Sample[HISTORY];
+    private int next;
+    private int count;
+
+    private long sampleStart;
+    private long lastPulse;
+    private int frames;
+    private long maxInterval;
+    private long gcCount = -1;
+    private long gcMillis;
+    private long produced;
+    private long applied;
+    private long shown;
+
+    /** Registra un pulse; restituisce true quando e' ora di chiudere un campione con {@link #sample}. */
+    boolean pulse(long now) {
+        if (lastPulse != 0) {
+            maxInterval = Math.max(maxInterval, now - lastPulse);
+            frames++;
+        } else {
+            sampleStart = now;
+        }
+        lastPulse = now;
+        return now - sampleStart >= SAMPLE_INTERVAL;
+    }
+
+    /**
+     * Chiude il campione corrente. I contatori di passi sono totali cumulativi: il campione
+     * ne tiene la differenza dal precedente, cioe' i passi al secondo.
+     */
+    Sample sample(long now, double renderMillis, long queued, long totalProduced, long totalApplied, long totalShown) {
+        double seconds = (now - sampleStart) / 1e9;
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionMillis += Math.max(0, collector.getCollectionTime());
+        }
+        if (gcCount < 0) {
+            gcCount = collections;
+            gcMillis = collectionMillis;
+        }
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        Sample sample = new Sample(System.currentTimeMillis(), frames / seconds,
+            frames == 0 ? 0 : seconds * 1000 / frames, maxInterval / 1e6, renderMillis, queued,
+            // una nuova esecuzione riparte da zero: il primo campione conta solo i suoi passi
+            rate(totalProduced, produced, seconds), rate(totalApplied, applied, seconds), rate(totalShown, shown, seconds),
+            heap.getUsed(), heap.getMax(), collections - gcCount, collectionMillis - gcMillis);
+        gcCount = collections;
+        gcMillis = collectionMillis;
+        produced = totalProduced;
+        applied = totalApplied;
+        shown = totalShown;
+        sampleStart = now;
+        frames = 0;
+        maxInterval = 0;
+
+        history[next] = sample;
+        next = (next + 1) % HISTORY;
+        count = Math.min(count + 1, HISTORY);
+        return sample;
+    }
+
+    private static double rate(long total, long previous, double seconds) {
+        return (total >= previous ? total - previous : total) / seconds;
+    }
+
+    /** Scrive i campioni dell'anello, dal piu' vecchio; restituisce quanti erano. */
+    int writeCsv(PrintWriter out) {
+        out.println("timestamp_ms,fps,pulse_avg_ms,pulse_max_ms,render_ms,queued_events,"
+            + "produced_per_s,applied_per_s,shown_per_s,heap_used_bytes,heap_max_bytes,gc_count,gc_ms");
+        for (int k = 0; k < count; k++) {
+            Sample s = history[(next - count + k + HISTORY) % HISTORY];
+            out.println(String.format(Locale.ROOT, "%d,%.1f,%.2f,%.2f,%.2f,%d,%.0f,%.0f,%.0f,%d,%d,%d,%d",
+                s.timestamp, s.fps, s.pulseAverage, s.pulseMax, s.render, s.queued,
+                s.produced, s.applied, s.shown, s.heapUsed, s.heapMax, s.gcCount, s.gcMillis));
+        }
+        return count;
+    }
+
+    /** Un secondo di misure. */
+    static final class Sample {
+        final long timestamp;
+        final double fps;
+        final double pulseAverage;
+        final double pulseMax;
+        final double render;
+        final long queued;
+        final double produced;
+        final double applied;
+        final double shown;
+        final long heapUsed;
+        final long heapMax;
+        final long gcCount;
+        final long gcMillis;
+
+        Sample(long timestamp, double fps, double pulseAverage, double pulseMax, double render, long queued,
+               double produced, double applied, double shown, long heapUsed, long heapMax, long gcCount, long gcMillis) {
+            this.timestamp = timestamp;
+            this.fps = fps;
+            this.pulseAverage = pulseAverage;
+            this.pulseMax = pulseMax;
+            this.render = render;
+            this.queued = queued;
+            this.produced = produced;
+            this.applied = applied;
+            this.shown = shown;
+            this.heapUsed = heapUsed;
+            this.heapMax = heapMax;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+}
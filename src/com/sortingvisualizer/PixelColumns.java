@@ -0,0 +1,145 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Riassunto per colonne di pixel di un array con piu' elementi che pixel: per ogni colonna
+ * minimo, massimo e media degli elementi che vi cadono, e l'ultimo worker che ci ha lavorato.
+ * Scambi e scritture aggiornano somma ed estremi in tempo costante; solo quando cambia
+ * l'elemento che era l'estremo di una colonna, la colonna si marca e si riscandisce al
+ * disegno successivo. Il costo di un frame dipende cosi' dalle colonne, non dagli elementi.
+ */
+final class PixelColumns {
+
+    private final int length;
+    private final int columns;
+    private final int[] min;
+    private final int[] max;
+    private final long[] sum;
+    private final int[] workers;
+    private final boolean[] stale;
+    private boolean anyStale;
+
+    /** Colonne di data; columns non puo' superare la lunghezza dell'array, cosi' nessuna resta vuota. */
+    PixelColumns(int[] data, int columns) {
+        this.length = data.length;
+        this.columns = columns;
+        this.min = new int[columns];
+        this.max = new int[columns];
+        this.sum = new long[columns];
+        this.workers = new int[columns];
+        this.stale = new boolean[columns];
+        for (int c = 0; c < columns; c++) {
+            scan(data, c);
+        }
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    /** Colonna in cui cade l'elemento index. */
+    int column(int index) {
+        return (int) ((long) index * columns / length);
+    }
+
+    private int start(int column) {
+        return (int) (((long) column * length + columns - 1) / columns);
+    }
+
+    /** data[index] e' passato da oldValue a newValue. */
+    void update(int index, int oldValue, int newValue) {
+        int c = column(index);
+        sum[c] += (long) newValue - oldValue;
+        if (newValue <= min[c]) {
+            min[c] = newValue;
+        } else if (oldValue == min[c]) {
+            markStale(c);
+        }
+        if (newValue >= max[c]) {
+            max[c] = newValue;
+        } else if (oldValue == max[c]) {
+            markStale(c);
+        }
+    }
+
+    /** Gli elementi a e b si sono scambiati: ora valgono valueA e valueB. */
+    void swap(int a, int b, int valueA, int valueB) {
+        if (column(a) != column(b)) {
+            update(a, valueB, valueA);
+            update(b, valueA, valueB);
+        }
+    }
+
+    /** Il worker (indice + 1) lavora sugli elementi [low, high]. */
+    void range(int low, int high, int worker) {
+        Arrays.fill(workers, column(low), column(high) + 1, worker);
+    }
+
+    void clearWorkers() {
+        Arrays.fill(workers, 0);
+    }
+
+    /** Ricalcola tutto da array e worker per elemento, per esempio dopo un salto del replay. */
+    void load(int[] data, int[] elementWorkers) {
+        for (int c = 0; c < columns; c++) {
+            scan(data, c);
+            workers[c] = 0;
+            for (int i = start(c), end = start(c + 1); i < end; i++) {
+                if (elementWorkers[i] != 0) {
+                    workers[c] = elementWorkers[i];
+                }
+            }
+        }
+    }
+
+    /** Riscandisce le colonne i cui estremi potrebbero essere cambiati; da chiamare prima di leggerle. */
+    void refresh(int[] data) {
+        if (!anyStale) return;
+        for (int c = 0; c < columns; c++) {
+            if (stale[c]) {
+                scan(data, c);
+            }
+        }
+        anyStale = false;
+    }
+
+    int min(int column) {
+        return min[column];
+    }
+
+    int max(int column) {
+        return max[column];
+    }
+
+    double mean(int column) {
+        return (double) sum[column] / (start(column + 1) - start(column));
+    }
+
+    int worker(int column) {
+        return workers[column];
+    }
+
+    private void markStale(int column) {
+        stale[column] = true;
+        anyStale = true;
+    }
+
+    private void scan(int[] data, int column) {
+        int from = start(column);
+        int to = start(column + 1);
+        int low = data[from];
+        int high = low;
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            int value = data[i];
+            if (value < low) low = value;
+            if (value > high) high = value;
+            total += value;
+        }
+        min[column] = low;
+        max[column] = high;
+        sum[column] = total;
+        stale[column] = false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Skip list su array primitivi: il nodo i ha il valore in values[i] e i successori, uno per
+ * livello, in next[i]. Il nodo 0 e' la testa; siccome non e' mai il successore di nessuno,
+ * 0 in next segna anche la fine della lista. Ogni nodo sale di un livello con probabilita' 1/4,
+ * da un generatore a seme fisso: la forma della lista si ripete a parita' di valori.
+ */
+final class SkipListStreamingSorter implements StreamingSorter {
+
+    private static final int MAX_LEVEL = 16; // 4^16 elementi prima di perdere il logaritmo
+    private static final long SEED = 0x5EED;
+
+    private final SplittableRandom random = new SplittableRandom(SEED);
+    private final int[] update = new int[MAX_LEVEL];
+    private int[] values = new int[1024];
+    private int[][] next = new int[1024][];
+    private int level = 1;
+    private int size;
+
+    SkipListStreamingSorter() {
+        next[0] = new int[MAX_LEVEL];
+    }
+
+    @Override
+    public void insert(int value) {
+        int node = 0;
+        for (int l = level - 1; l >= 0; l--) {
+            while (next[node][l] != 0 && values[next[node][l]] <= value) {
+                node = next[node][l];
+            }
+            update[l] = node;
+        }
+        int height = randomHeight();
+        for (; level < height; level++) {
+            update[level] = 0;
+        }
+        int created = ++size;
+        if (created == values.length) {
+            values = Arrays.copyOf(values, created * 2);
+            next = Arrays.copyOf(next, created * 2);
+        }
+        values[created] = value;
+        int[] links = new int[height];
+        for (int l = 0; l < height; l++) {
+            links[l] = next[update[l]][l];
+            next[update[l]][l] = created;
+        }
+        next[created] = links;
+    }
+
+    private int randomHeight() {
+        int height = 1;
+        while (height < MAX_LEVEL && (random.nextInt() & 3) == 0) {
+            height++;
+        }
+        return height;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void copyTo(int[] dest) {
+        int i = 0;
+        for (int node = next[0][0]; node != 0; node = next[node][0]) {
+            dest[i++] = values[node];
+        }
+    }
+}
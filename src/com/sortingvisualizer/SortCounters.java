@@ -0,0 +1,96 @@
+package com.sortingvisualizer;
+
+/**
+ * Contatori delle operazioni di un algoritmo. Ogni thread che lavora per l'algoritmo ha i suoi
+ * e li incrementa senza sincronizzazione; il buffer di eventi ne pubblica una copia al piu'
+ * una volta per frame (vedi {@link SortEventBuffer#getCounters()}).
+ *
+ * La memoria ausiliaria si misura in elementi int. Per le versioni parallele il picco e' la somma
+ * dei picchi dei singoli thread, quindi un limite superiore del picco effettivo, e la profondita'
+ * massima e' quella del thread con la pila piu' profonda.
+ */
+public final class SortCounters {
+
+    long comparisons;
+    long swaps;
+    long reads;
+    long writes;
+    long auxiliary;
+    long peakAuxiliary;
+    int depth;
+    int peakDepth;
+    // ultimo svuotamento del buffer in cui questi contatori sono stati pubblicati
+    int publishedDrain = -1;
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getSwaps() {
+        return swaps;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    /** Picco della memoria ausiliaria, in elementi. */
+    public long getPeakAuxiliary() {
+        return peakAuxiliary;
+    }
+
+    public int getPeakDepth() {
+        return peakDepth;
+    }
+
+    void allocate(int elements) {
+        auxiliary += elements;
+        if (auxiliary > peakAuxiliary) {
+            peakAuxiliary = auxiliary;
+        }
+    }
+
+    void release(int elements) {
+        auxiliary -= elements;
+    }
+
+    void enter() {
+        if (++depth > peakDepth) {
+            peakDepth = depth;
+        }
+    }
+
+    void leave() {
+        depth--;
+    }
+
+    void copyFrom(SortCounters other) {
+        comparisons = other.comparisons;
+        swaps = other.swaps;
+        reads = other.reads;
+        writes = other.writes;
+        auxiliary = other.auxiliary;
+        peakAuxiliary = other.peakAuxiliary;
+        depth = other.depth;
+        peakDepth = other.peakDepth;
+    }
+
+    void add(SortCounters other) {
+        comparisons += other.comparisons;
+        swaps += other.swaps;
+        reads += other.reads;
+        writes += other.writes;
+        auxiliary += other.auxiliary;
+        peakAuxiliary += other.peakAuxiliary;
+        depth = Math.max(depth, other.depth);
+        peakDepth = Math.max(peakDepth, other.peakDepth);
+    }
+
+    void clear() {
+        copyFrom(new SortCounters());
+    }
+}
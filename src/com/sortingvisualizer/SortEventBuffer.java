@@ -0,0 +1,244 @@
+package com.sortingvisualizer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Buffer degli eventi prodotti da un singolo algoritmo.
+ * Ogni evento e' una tripla di interi (op, a, b):
+ * COMPARE i,j - SWAP i,j - WRITE i,v - DONE - RANGE lo,hi.
+ * RANGE segnala l'intervallo su cui lavora un worker delle versioni parallele;
+ * l'indice del worker viaggia nei bit alti del codice operazione (vedi {@link #range(int)}).
+ * Il produttore accoda in O(1); il consumatore scambia il buffer pieno con uno
+ * vuoto e applica i delta alla propria copia dell'array.
+ * I contatori dei thread produttori viaggiano con gli eventi: ogni thread ne pubblica una
+ * copia con il primo evento successivo a uno svuotamento, cioe' al piu' una volta per frame.
+ * Ogni evento finisce anche nella {@link SortTrace} dell'algoritmo, nello stesso ordine;
+ * in registrazione il buffer tiene solo l'evento DONE e la traccia riceve tutto il resto.
+ * Accodare nel buffer e nella traccia sotto lo stesso lock tiene i due ordini uguali, ma i
+ * worker delle versioni parallele se lo contenderebbero a ogni evento: {@link PacingProbe}
+ * glieli consegna invece a lotti ({@link #addAll}), una presa del lock per lotto.
+ *
+ * Il buffer tiene al massimo {@link #CAPACITY} eventi, piu' l'evento DONE, in un anello. Da pieno
+ * segue la sua {@link BackpressurePolicy}: il produttore aspetta, oppure si scartano gli eventi
+ * piu' vecchi, uno per ogni nuovo. La replica dell'array nella traccia contiene comunque tutti gli eventi, quindi
+ * dopo uno scarto il consumatore ne riceve una copia ({@link Sink#onSnapshot}) al posto
+ * di quelli persi. Gli eventi rimasti sono gia' compresi nella copia: scambi e scritture
+ * arrivano allora come confronti, che segnano gli indici senza toccare l'array.
+ */
+public final class SortEventBuffer {
+
+    public static final int COMPARE = 1;
+    public static final int SWAP = 2;
+    public static final int WRITE = 3;
+    public static final int DONE = 4;
+    public static final int RANGE = 5;
+
+    public static final int NO_INDEX = -1;
+
+    /** Eventi accodati al massimo per il consumatore, esclusa la fine dell'algoritmo. */
+    public static final int CAPACITY = 1 << 14;
+
+    private static final int INITIAL_EVENTS = 256;
+    // ogni quanto un produttore in attesa controlla se l'esecuzione e' stata annullata
+    private static final long BLOCK_POLL_MILLIS = 10;
+    private static final int OPCODE_BITS = 8;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    public interface Sink {
+        void onEvent(int op, int a, int b);
+
+        /**
+         * Stato completo dell'array e dei worker dopo uno scarto di eventi, da copiare: gli array
+         * appartengono al buffer. dropped conta gli eventi scartati dallo svuotamento precedente.
+         */
+        void onSnapshot(int[] data, int[] workers, long dropped);
+    }
+
+    /** Codice di un evento RANGE emesso dal worker indicato. */
+    public static int range(int worker) {
+        return RANGE | (worker << OPCODE_BITS);
+    }
+    
+    /** Tipo dell'evento, senza l'eventuale indice del worker. */
+    public static int opcode(int op) {
+        return op & OPCODE_MASK;
+    }
+    
+    public static int worker(int op) {
+        return op >>> OPCODE_BITS;
+    }
+    
+    // anello di eventi: il piu' vecchio comincia a head, size conta gli interi occupati
+    private int[] pending = new int[INITIAL_EVENTS * 3];
+    private int[] spare = new int[INITIAL_EVENTS * 3];
+    private int head;
+    private int size;
+    // eventi accodati per il consumatore dall'inizio, per confrontarli con quelli applicati
+    private long produced;
+    private volatile long elapsedTime;
+    private int drains;
+    // copie pubblicate dei contatori di ogni thread produttore, protette dal lock
+    private final Map<SortCounters, SortCounters> published = new IdentityHashMap<>();
+    // somma delle copie, aggiornata a ogni svuotamento e letta solo dal consumatore
+    private final SortCounters totals = new SortCounters();
+    private final SortTrace trace;
+    private final boolean buffered;
+    private final BackpressurePolicy policy;
+    private final SortRun run;
+    // eventi scartati dall'ultimo svuotamento: il consumatore deve ripartire dalla replica
+    private long dropped;
+    // copia della replica consegnata al consumatore, allocata al primo scarto
+    private int[] snapshot;
+    private int[] snapshotWorkers;
+
+    SortEventBuffer(SortTrace trace, boolean buffered, BackpressurePolicy policy, SortRun run) {
+        this.trace = trace;
+        this.buffered = buffered;
+        this.policy = policy;
+        this.run = run;
+    }
+
+    synchronized void add(int op, int a, int b, long elapsed, SortCounters counters) {
+        boolean done = opcode(op) == DONE;
+        if (buffered && !done && policy == BackpressurePolicy.BLOCK) {
+            // si aspetta prima di scrivere nella traccia, che resta cosi' nell'ordine del buffer
+            awaitSpace();
+        }
+        if (counters.publishedDrain != drains) {
+            publish(counters);
+        }
+        elapsedTime = elapsed;
+        trace.append(op, a, b);
+        if (!buffered && !done) {
+            return;
+        }
+        if (!done && policy == BackpressurePolicy.KEEP_LATEST) {
+            dropped += size / 3;
+            head = 0;
+            size = 0;
+        } else if (!done && size == CAPACITY * 3) {
+            // DROP_OLDEST: esce solo l'evento in testa, quanto basta per fare posto al nuovo
+            dropped++;
+            head = (head + 3) % pending.length;
+            size -= 3;
+        }
+        if (size + 3 > pending.length) {
+            int[] grown = new int[Math.min(pending.length * 2, (CAPACITY + 1) * 3)];
+            int tail = Math.min(size, pending.length - head);
+            System.arraycopy(pending, head, grown, 0, tail);
+            System.arraycopy(pending, 0, grown, tail, size - tail);
+            pending = grown;
+            head = 0;
+        }
+        // le triple non si spezzano: la lunghezza dell'anello e' un multiplo di 3
+        int end = (head + size) % pending.length;
+        pending[end] = op;
+        pending[end + 1] = a;
+        pending[end + 2] = b;
+        size += 3;
+        produced++;
+    }
+
+    /** Accoda i primi count interi di batch, a triple, con una sola presa del lock. */
+    synchronized void addAll(int[] batch, int count, long elapsed, SortCounters counters) {
+        for (int k = 0; k < count; k += 3) {
+            add(batch[k], batch[k + 1], batch[k + 2], elapsed, counters);
+        }
+    }
+
+    private void awaitSpace() {
+        while (size == CAPACITY * 3) {
+            if (run.isCancelled()) {
+                throw new CancellationException();
+            }
+            try {
+                wait(BLOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                run.cancel();
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /** Pubblica subito i contatori di un thread; serve a fine algoritmo per i valori finali. */
+    synchronized void publish(SortCounters counters) {
+        SortCounters copy = published.get(counters);
+        if (copy == null) {
+            copy = new SortCounters();
+            published.put(counters, copy);
+        }
+        copy.copyFrom(counters);
+        counters.publishedDrain = drains;
+    }
+
+    /**
+     * Consegna al sink tutti gli eventi accumulati e restituisce quanti erano.
+     * Va chiamato da un solo consumatore alla volta.
+     */
+    public int drainTo(Sink sink) {
+        int[] batch;
+        int first;
+        int count;
+        long lost;
+        synchronized (this) {
+            batch = pending;
+            first = head;
+            count = size;
+            pending = spare;
+            spare = batch;
+            head = 0;
+            size = 0;
+            drains++;
+            totals.clear();
+            for (SortCounters copy : published.values()) {
+                totals.add(copy);
+            }
+            lost = dropped;
+            if (lost > 0) {
+                if (snapshot == null) {
+                    snapshot = new int[trace.length()];
+                    snapshotWorkers = new int[trace.length()];
+                }
+                trace.copyState(snapshot, snapshotWorkers);
+                dropped = 0;
+            }
+            // un produttore in attesa puo' ripartire
+            notifyAll();
+        }
+        if (lost > 0) {
+            sink.onSnapshot(snapshot, snapshotWorkers, lost);
+        }
+        for (int k = 0; k < count; k += 3) {
+            int at = (first + k) % batch.length;
+            int op = batch[at];
+            int a = batch[at + 1];
+            int b = batch[at + 2];
+            if (lost > 0 && opcode(op) == SWAP) {
+                sink.onEvent(COMPARE, a, b);
+            } else if (lost > 0 && opcode(op) == WRITE) {
+                sink.onEvent(COMPARE, a, NO_INDEX);
+            } else {
+                sink.onEvent(op, a, b);
+            }
+        }
+        return count / 3;
+    }
+
+    /** Eventi accodati per il consumatore dall'inizio dell'esecuzione, svuotati, scartati o in attesa. */
+    public synchronized long produced() {
+        return produced;
+    }
+
+    /** Contatori dell'algoritmo all'ultimo svuotamento. Solo per il consumatore. */
+    public SortCounters getCounters() {
+        return totals;
+    }
+
+    /** Tempo trascorso, in ms, registrato con l'ultimo evento. */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
@@ -0,0 +1,67 @@
+package com.sortingvisualizer;
+
+/**
+ * Osservatore delle operazioni elementari di un algoritmo. Letture, scritture e scambi
+ * arrivano da {@link IntArray}; i confronti, la memoria ausiliaria, la ricorsione e gli
+ * intervalli dei worker paralleli li segnala l'algoritmo stesso.
+ *
+ * Per il benchmark si usa {@link #NO_OP}. Le implementazioni sono solo due (questa e
+ * {@link PacingProbe}), quindi ogni punto di chiamata resta al piu' bimorfico: la JIT
+ * inlinea i metodi vuoti e il percorso non strumentato non paga nulla.
+ */
+public interface SortProbe {
+
+    SortProbe NO_OP = new SortProbe() {
+        @Override
+        public void compare(int i, int j) {
+        }
+
+        @Override
+        public void read(int index) {
+        }
+
+        @Override
+        public void write(int index, int value) {
+        }
+
+        @Override
+        public void swap(int i, int j) {
+        }
+    };
+
+    /** Confronto tra gli elementi i e j (j puo' essere NO_INDEX se il termine non e' nell'array). */
+    void compare(int i, int j);
+
+    void read(int index);
+
+    /** Chiamato dopo che data[index] ha assunto value. */
+    void write(int index, int value);
+
+    /** Chiamato dopo lo scambio di data[i] e data[j]. */
+    void swap(int i, int j);
+
+    /** Il worker corrente lavora sull'intervallo [low, high] (solo versioni parallele). */
+    default void range(int low, int high) {
+    }
+
+    /**
+     * Punto di sincronizzazione di un worker: le versioni parallele lo chiamano prima di un fork
+     * e alla fine di un task, perche' i suoi eventi precedano quelli dei task che ne dipendono.
+     */
+    default void sync() {
+    }
+
+    /** Memoria ausiliaria presa dall'algoritmo, in elementi int. */
+    default void allocate(int elements) {
+    }
+
+    default void release(int elements) {
+    }
+
+    /** Ingresso in un livello di ricorsione. */
+    default void enter() {
+    }
+
+    default void leave() {
+    }
+}
@@ -0,0 +1,207 @@
+package com.sortingvisualizer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controllo di un'esecuzione animata avviata da {@link SortingBusinessLogic#startSorting}.
+ * Gli algoritmi consultano il controllo a ogni punto di strumentazione: in pausa si fermano
+ * li', un passo singolo ne fa avanzare ciascuno di un'operazione, l'annullamento li fa uscire
+ * subito (anche dalle pause di animazione) liberando i loro thread.
+ */
+public final class SortRun {
+
+    private final Object lock = new Object();
+    private final CountDownLatch cancelSignal = new CountDownLatch(1);
+    // partenza comune degli algoritmi, null se disattivata; l'annullamento la apre del tutto
+    private final CountDownLatch startGate;
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+    private long stepsGranted;
+    private long stepsAtPause;
+    // sostituito per intero sotto il lock, letto senza lock dai cronometri a ogni evento
+    private volatile PauseClock clock = new PauseClock(0, 0, false);
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+    private final Map<String, SortTrace> traces = new LinkedHashMap<>();
+
+    /** parties: algoritmi che partono insieme, oppure zero per farli partire appena pronti. */
+    SortRun(int parties) {
+        this.startGate = parties > 0 ? new CountDownLatch(parties) : null;
+    }
+
+    public void pause() {
+        synchronized (lock) {
+            if (paused || cancelled) return;
+            paused = true;
+            clock = new PauseClock(clock.pausedNanos, System.nanoTime(), true);
+            // i passi concessi in una pausa precedente e non consumati non valgono piu'
+            stepsAtPause = stepsGranted;
+        }
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            if (!paused) return;
+            paused = false;
+            clock = new PauseClock(clock.pausedNanos + System.nanoTime() - clock.pauseStart, 0, false);
+            lock.notifyAll();
+        }
+    }
+
+    /** In pausa, fa eseguire a ogni algoritmo ancora in corso una sola operazione. */
+    public void step() {
+        synchronized (lock) {
+            if (!paused) return;
+            stepsGranted++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Ferma tutti gli algoritmi al loro prossimo punto di strumentazione. Per sapere quando
+     * i thread sono stati effettivamente rilasciati si usa {@link #completion()}.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            lock.notifyAll();
+        }
+        cancelSignal.countDown();
+        if (startGate != null) {
+            // chi e' in attesa esce subito, e chi arriva dopo non si ferma: nessuno resta appeso
+            while (startGate.getCount() > 0) {
+                startGate.countDown();
+            }
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Si completa quando tutti gli algoritmi sono terminati, normalmente o per annullamento. */
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    /**
+     * Tracce degli algoritmi, nell'ordine di avvio. Vanno lette solo dopo {@link #completion()}:
+     * fino ad allora gli algoritmi ci stanno ancora scrivendo.
+     */
+    public Map<String, SortTrace> traces() {
+        return Collections.unmodifiableMap(traces);
+    }
+
+    /**
+     * Crea la traccia di un algoritmo; si chiama prima di avviarlo. Su disco, eventi e keyframe
+     * vanno in due file temporanei mappati in memoria.
+     */
+    SortTrace record(String algorithm, int[] initialData, boolean onDisk) {
+        SortTrace trace = onDisk
+            ? new SortTrace(initialData, new MappedTraceStore("sorting-events-"), new MappedTraceStore("sorting-keyframes-"))
+            : new SortTrace(initialData, new HeapTraceStore(), new HeapTraceStore());
+        traces.put(algorithm, trace);
+        return trace;
+    }
+
+    /**
+     * Segna l'algoritmo come pronto e attende gli altri, se la partenza comune e' attiva.
+     * Lancia CancellationException se l'esecuzione e' annullata, prima o durante l'attesa.
+     */
+    void awaitStart() {
+        if (startGate != null) {
+            startGate.countDown();
+            try {
+                startGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+        }
+        if (cancelled) throw new CancellationException();
+    }
+
+    void setCompletion(CompletableFuture<Void> completion) {
+        this.completion = completion;
+    }
+
+    Cursor newCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Punto di controllo di un algoritmo: ritorna subito se l'esecuzione procede, attende
+     * se e' in pausa (salvo un passo disponibile) e lancia CancellationException se e' annullata.
+     */
+    void checkpoint(Cursor cursor) {
+        if (cancelled) throw new CancellationException();
+        if (!paused) return;
+        synchronized (lock) {
+            while (true) {
+                if (cancelled) throw new CancellationException();
+                if (!paused) return;
+                cursor.stepsTaken = Math.max(cursor.stepsTaken, stepsAtPause);
+                if (cursor.stepsTaken < stepsGranted) {
+                    cursor.stepsTaken++;
+                    return;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                }
+            }
+        }
+    }
+
+    /** Pausa di animazione che termina in anticipo se l'esecuzione viene annullata. */
+    void delay(long nanos) {
+        try {
+            if (cancelSignal.await(nanos, TimeUnit.NANOSECONDS)) {
+                throw new CancellationException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new CancellationException();
+        }
+    }
+
+    /** Tempo trascorso senza contare le pause, per i cronometri degli algoritmi. Non prende il lock. */
+    long activeNanos() {
+        PauseClock current = clock;
+        long now = current.paused ? current.pauseStart : System.nanoTime();
+        return now - current.pausedNanos;
+    }
+
+    /** Durata delle pause gia' concluse e inizio di quella in corso, se c'e'. */
+    private static final class PauseClock {
+        final long pausedNanos;
+        final long pauseStart;
+        final boolean paused;
+
+        PauseClock(long pausedNanos, long pauseStart, boolean paused) {
+            this.pausedNanos = pausedNanos;
+            this.pauseStart = pauseStart;
+            this.paused = paused;
+        }
+    }
+
+    /**
+     * Passi consumati da un algoritmo. Le versioni parallele condividono un solo cursore:
+     * viene aggiornato solo sotto il lock, quindi un passo fa avanzare un solo worker.
+     */
+    static final class Cursor {
+        private long stepsTaken;
+    }
+}
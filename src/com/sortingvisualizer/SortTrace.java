@@ -0,0 +1,307 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Registrazione compatta degli eventi di un algoritmo, per rivederne l'esecuzione senza
+ * rieseguirla. Ogni evento occupa pochi byte: codice operazione, primo indice come differenza
+ * dal precedente e secondo come differenza dal primo, tutti in varint (zigzag per il segno).
+ * Ogni {@code keyframeInterval} eventi si conserva una copia dell'array, cosi' un {@link Reader}
+ * raggiunge qualunque passo, anche all'indietro, decodificando al piu' un intervallo.
+ * Eventi e keyframe stanno in due {@link TraceStore}, in memoria o su file mappati; nello
+ * heap resta solo l'indice dei keyframe, che porta da un passo alla sua posizione nei file.
+ *
+ * Scrive un solo thread alla volta (il buffer degli eventi lo fa sotto il proprio lock);
+ * si legge a registrazione conclusa.
+ */
+public final class SortTrace {
+
+    private static final int MIN_KEYFRAME_INTERVAL = 1024;
+    // una copia dell'array ogni 4n eventi: i keyframe costano circa un byte per evento
+    private static final int KEYFRAME_SPACING = 4;
+    // ogni quanti eventi si rende visibile l'avanzamento agli altri thread
+    private static final int PROGRESS_STEPS = 1 << 12;
+
+    private final int keyframeInterval;
+    // replica dell'array aggiornata dal registratore, da cui si copiano i keyframe
+    private final int[] state;
+    // ultimo worker su ogni elemento, come nella vista; null finche' non arriva un RANGE
+    private int[] workers;
+    private final TraceStore events;
+    private final TraceStore snapshots;
+    private long steps;
+    private volatile long progress;
+    private int lastIndex;
+    private boolean done;
+    private Keyframe[] keyframes = new Keyframe[16];
+    private int keyframeCount;
+
+    SortTrace(int[] initialData, TraceStore events, TraceStore snapshots) {
+        this.state = initialData.clone();
+        this.events = events;
+        this.snapshots = snapshots;
+        this.keyframeInterval = (int) Math.min(Integer.MAX_VALUE,
+            Math.max(MIN_KEYFRAME_INTERVAL, (long) KEYFRAME_SPACING * initialData.length));
+        addKeyframe();
+    }
+
+    /** Numero di eventi registrati. */
+    public long size() {
+        return steps;
+    }
+
+    /**
+     * Eventi registrati finora, leggibile da altri thread durante la registrazione;
+     * resta indietro di qualche migliaio di eventi fino alla fine dell'algoritmo.
+     */
+    public long progress() {
+        return progress;
+    }
+
+    /** Byte occupati dagli eventi codificati, keyframe esclusi. */
+    public long byteSize() {
+        return events.size();
+    }
+
+    /** Libera la memoria o cancella i file della traccia. */
+    public void close() {
+        events.close();
+        snapshots.close();
+    }
+
+    /** Vero se la registrazione contiene la fine dell'algoritmo (non e' stato annullato). */
+    public boolean isComplete() {
+        return done;
+    }
+
+    public Reader newReader() {
+        return new Reader();
+    }
+
+    /** Lunghezza dell'array registrato. */
+    int length() {
+        return state.length;
+    }
+
+    /**
+     * Copia la replica aggiornata all'ultimo evento registrato; workers riceve zeri se
+     * l'algoritmo non ha ancora segnalato intervalli. Va chiamato sotto il lock di chi scrive.
+     */
+    void copyState(int[] data, int[] workers) {
+        System.arraycopy(state, 0, data, 0, state.length);
+        if (this.workers != null) {
+            System.arraycopy(this.workers, 0, workers, 0, state.length);
+        } else {
+            Arrays.fill(workers, 0);
+        }
+    }
+
+    void append(int op, int a, int b) {
+        if (steps > 0 && steps % keyframeInterval == 0) {
+            addKeyframe();
+        }
+        writeVarint(op & 0xFFFFFFFFL);
+        writeVarint(zigzag((long) a - lastIndex));
+        writeVarint(zigzag((long) b - a));
+        lastIndex = a;
+        if (SortEventBuffer.opcode(op) == SortEventBuffer.RANGE && workers == null) {
+            workers = new int[state.length];
+        }
+        apply(state, workers, op, a, b);
+        if (SortEventBuffer.opcode(op) == SortEventBuffer.DONE) {
+            done = true;
+        }
+        steps++;
+        if (done || steps % PROGRESS_STEPS == 0) {
+            progress = steps;
+        }
+    }
+
+    private void addKeyframe() {
+        if (keyframeCount == keyframes.length) {
+            keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+        }
+        // le differenze ripartono da zero a ogni keyframe, cosi' si puo' decodificare da li'
+        lastIndex = 0;
+        keyframes[keyframeCount++] = new Keyframe(events.size(), snapshots.size(), workers != null);
+        snapshots.putInts(state);
+        if (workers != null) {
+            snapshots.putInts(workers);
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            events.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        events.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Applica un evento a un array e, se presente, alla mappa dei worker. */
+    static void apply(int[] data, int[] workers, int op, int a, int b) {
+        switch (SortEventBuffer.opcode(op)) {
+            case SortEventBuffer.SWAP:
+                int tmp = data[a];
+                data[a] = data[b];
+                data[b] = tmp;
+                break;
+            case SortEventBuffer.WRITE:
+                data[a] = b;
+                break;
+            case SortEventBuffer.RANGE:
+                if (workers != null) {
+                    Arrays.fill(workers, a, b + 1, SortEventBuffer.worker(op) + 1);
+                }
+                break;
+            case SortEventBuffer.DONE:
+                if (workers != null) {
+                    Arrays.fill(workers, 0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Voce dell'indice: dove iniziano gli eventi successivi e la copia dell'array. */
+    private static final class Keyframe {
+        final long offset;
+        final long snapshot;
+        final boolean withWorkers;
+
+        Keyframe(long offset, long snapshot, boolean withWorkers) {
+            this.offset = offset;
+            this.snapshot = snapshot;
+            this.withWorkers = withWorkers;
+        }
+    }
+
+    /**
+     * Cursore di riproduzione: mantiene lo stato dell'array al passo corrente. Avanzare costa
+     * un evento per passo; tornare indietro o saltare lontano riparte dal keyframe precedente.
+     */
+    public final class Reader {
+
+        private final int[] data = new int[state.length];
+        private final int[] readerWorkers = workers == null ? null : new int[state.length];
+        private long position;
+        private long offset;
+        private int lastRead;
+        private int firstActive = SortEventBuffer.NO_INDEX;
+        private int secondActive = SortEventBuffer.NO_INDEX;
+        private boolean completed;
+
+        Reader() {
+            load(0);
+        }
+
+        /** Porta il cursore dopo i primi {@code step} eventi (limitato alla lunghezza della traccia). */
+        public void seek(long step) {
+            long target = Math.max(0, Math.min(step, steps));
+            int keyframe = (int) Math.min(target / keyframeInterval, keyframeCount - 1);
+            if (target < position || (long) keyframe * keyframeInterval > position) {
+                load(keyframe);
+            }
+            while (position < target) {
+                next();
+            }
+        }
+
+        public long position() {
+            return position;
+        }
+
+        /** Stato dell'array al passo corrente; non va modificato. */
+        public int[] data() {
+            return data;
+        }
+
+        /** Worker per elemento come in {@link SortEventBuffer#range(int)}, o null se l'algoritmo non ne usa. */
+        public int[] workers() {
+            return readerWorkers;
+        }
+
+        public int firstActive() {
+            return firstActive;
+        }
+
+        public int secondActive() {
+            return secondActive;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        private void load(int keyframe) {
+            Keyframe k = keyframes[keyframe];
+            snapshots.getInts(k.snapshot, data);
+            if (readerWorkers != null) {
+                if (k.withWorkers) {
+                    snapshots.getInts(k.snapshot + (long) Integer.BYTES * data.length, readerWorkers);
+                } else {
+                    Arrays.fill(readerWorkers, 0);
+                }
+            }
+            position = (long) keyframe * keyframeInterval;
+            offset = k.offset;
+            lastRead = 0;
+            firstActive = SortEventBuffer.NO_INDEX;
+            secondActive = SortEventBuffer.NO_INDEX;
+            completed = false;
+        }
+
+        private void next() {
+            int op = (int) readVarint();
+            int a = (int) (lastRead + unzigzag(readVarint()));
+            int b = (int) (a + unzigzag(readVarint()));
+            lastRead = a;
+            apply(data, readerWorkers, op, a, b);
+            switch (SortEventBuffer.opcode(op)) {
+                case SortEventBuffer.COMPARE:
+                case SortEventBuffer.SWAP:
+                    firstActive = a;
+                    secondActive = b;
+                    break;
+                case SortEventBuffer.WRITE:
+                    firstActive = a;
+                    secondActive = SortEventBuffer.NO_INDEX;
+                    break;
+                case SortEventBuffer.DONE:
+                    firstActive = SortEventBuffer.NO_INDEX;
+                    secondActive = SortEventBuffer.NO_INDEX;
+                    completed = true;
+                    break;
+                default:
+                    break;
+            }
+            position++;
+            // il registratore azzera le differenze a ogni keyframe: il lettore lo segue
+            if (position % keyframeInterval == 0) {
+                lastRead = 0;
+            }
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                int b = events.get(offset++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
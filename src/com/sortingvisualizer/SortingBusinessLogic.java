@@ -1,17 +1,127 @@
 package com.sortingvisualizer;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 public class SortingBusinessLogic {
     
-    private static final int MAX_VALUE = 40;
-    private static final int BASE_DELAY = 2400; // kb = BASE_DELAY / arraySize
+    public static final int DEFAULT_MIN_VALUE = 1;
+    public static final int DEFAULT_MAX_VALUE = 40;
+    /** Memoria predefinita per gli istogrammi di Counting Sort: 256 MB, 2^26 contatori. */
+    public static final long DEFAULT_COUNTING_BUDGET = 256L << 20;
+    // la lunghezza massima di un array su tutte le JVM comuni
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    // cifre da 8 bit: quattro passate coprono un int e l'istogramma di un blocco (1 KB) resta in L1
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX - 1;
+    // oltre questa dimensione il benchmark salta i casi quadratici, che durerebbero ore
+    private static final int BENCHMARK_QUADRATIC_MAX = 50_000;
+    /** Durata obiettivo predefinita delle animazioni, in secondi. */
+    public static final double DEFAULT_TARGET_SECONDS = 30;
+    // oltre questa dimensione le tracce vanno su file mappati: gli algoritmi quadratici
+    // producono n^2 eventi, miliardi gia' con qualche decina di migliaia di elementi
+    private static final int HEAP_TRACE_MAX_SIZE = 1000;
+    private static final int NONE = SortEventBuffer.NO_INDEX;
+    
+    /** Sotto questa dimensione un sottoproblema si ordina con la versione sequenziale. */
+    public static final int DEFAULT_PARALLEL_CUTOFF = 8192;
+    private static final long BENCHMARK_WARMUP_NANOS = 100_000_000L;
+    private static final long BENCHMARK_MEASURE_NANOS = 100_000_000L;
+    private static final int BENCHMARK_MAX_RUNS = 10_001;
+    // array di n int vivi durante una misura: la copia di lavoro e fino a due ausiliari
+    // (L/R di Merge Sort, il buffer di Radix Sort o della versione parallela di Merge Sort)
+    private static final int BENCHMARK_ARRAYS_PER_RUN = 3;
+    private static final ForkJoinPool HEADLESS_POOL = newForkJoinPool("sorting-fj-");
+    private static volatile long countingBudget = DEFAULT_COUNTING_BUDGET;
+    
+    /**
+     * Un algoritmo del registro. Ogni algoritmo e' scritto una sola volta: le letture, le scritture
+     * e gli scambi passano da IntArray, che li segnala al suo probe, mentre i confronti si segnalano
+     * direttamente. Con {@link SortProbe#NO_OP} la stessa implementazione gira a piena velocita'.
+     */
+    @FunctionalInterface
+    private interface Sorter {
+        void sort(IntArray data, SortProbe probe, ForkJoinPool pool, int parallelCutoff);
+    }
+    
+    private static final Map<String, Sorter> SORTERS = new LinkedHashMap<>();
+    // le versioni parallele si misurano da sole, dopo le altre, per avere tutti i core a disposizione
+    private static final Set<String> PARALLEL = new LinkedHashSet<>();
+    static {
+        register("Bubble Sort", (data, probe, pool, cutoff) -> bubbleSort(data, probe));
+        register("Selection Sort", (data, probe, pool, cutoff) -> selectionSort(data, probe));
+        register("Insertion Sort", (data, probe, pool, cutoff) -> insertionSort(data, probe));
+        register("Quick Sort", (data, probe, pool, cutoff) -> quickSort(data, 0, data.size() - 1, probe));
+        register("Merge Sort", (data, probe, pool, cutoff) -> mergeSort(data, 0, data.size() - 1, probe));
+        register("Heap Sort", (data, probe, pool, cutoff) -> heapSort(data, probe));
+        register("Shell Sort", (data, probe, pool, cutoff) -> shellSort(data, probe));
+        register("Binary Insertion Sort", (data, probe, pool, cutoff) -> binaryInsertionSort(data, probe));
+        registerParallel("Counting Sort", SortingBusinessLogic::countingSort);
+        registerParallel("Radix Sort", SortingBusinessLogic::radixSort);
+        registerParallel("Parallel Merge Sort", SortingBusinessLogic::parallelMergeSort);
+        registerParallel("Parallel Quick Sort", SortingBusinessLogic::parallelQuickSort);
+    }
+    
+    // strategie della modalita' streaming, nell'ordine in cui si mostrano
+    private static final Map<String, Supplier<StreamingSorter>> STREAMING_SORTERS = new LinkedHashMap<>();
+    static {
+        STREAMING_SORTERS.put("Binary Insertion Array", ArrayStreamingSorter::new);
+        STREAMING_SORTERS.put("Skip List", SkipListStreamingSorter::new);
+        STREAMING_SORTERS.put("B+ Tree", BPlusTreeStreamingSorter::new);
+        STREAMING_SORTERS.put("Batch Merge", BatchMergeStreamingSorter::new);
+    }
+    
+    private static void register(String name, Sorter sorter) {
+        SORTERS.put(name, sorter);
+    }
+    
+    private static void registerParallel(String name, Sorter sorter) {
+        SORTERS.put(name, sorter);
+        PARALLEL.add(name);
+    }
     
     private int arraySize;
-    private List<Integer> originalData;
-    private final Random random = new Random();
+    private int[] originalData;
+    private int minValue = DEFAULT_MIN_VALUE;
+    private int maxValue = DEFAULT_MAX_VALUE;
+    private Distribution distribution = Distribution.RANDOM;
+    private DatasetSpec dataset;
+    // le esecuzioni animate passano quasi tutto il tempo in sleep: un thread (virtuale, se possibile) ciascuna
+    private final ExecutorService pacedExecutor = newPacedExecutor();
+    // il benchmark e' CPU-bound: al massimo un thread per core, senza sovrascrivere la CPU
+    private final ExecutorService cpuExecutor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), daemonThreads("sorting-cpu-"));
+    // i worker delle versioni animate dormono a ogni passo: pool separato da quello del benchmark
+    private final ForkJoinPool pacedForkJoinPool = newForkJoinPool("sorting-fj-paced-");
+    // lo streaming vuole un thread per strategia piu' il generatore, anche con pochi core
+    private final ExecutorService streamingExecutor = Executors.newCachedThreadPool(daemonThreads("sorting-stream-"));
+    private boolean startBarrier = true;
+    private int parallelCutoff = DEFAULT_PARALLEL_CUTOFF;
+    // una sola delle due e' attiva: l'altra vale zero
+    private double targetSeconds = DEFAULT_TARGET_SECONDS;
+    private double stepsPerSecond;
+    private final Map<String, BackpressurePolicy> backpressure = new HashMap<>();
     
     public SortingBusinessLogic(int initialSize) {
         this.arraySize = initialSize;
@@ -22,609 +132,1119 @@ public class SortingBusinessLogic {
         this.arraySize = newSize;
     }
     
+    /**
+     * Se attiva, gli algoritmi animati attendono che tutti i loro thread siano pronti
+     * e partono insieme, cosi' nessuno parte in vantaggio.
+     */
+    public void setStartBarrier(boolean enabled) {
+        this.startBarrier = enabled;
+    }
+    
+    /**
+     * Dimensione sotto la quale le versioni parallele smettono di dividere il lavoro
+     * e ordinano il sottoproblema in sequenza. Vale per l'animazione e per la registrazione;
+     * il benchmark usa sempre {@value #DEFAULT_PARALLEL_CUTOFF}, come {@code SortingBenchmark}.
+     */
+    public void setParallelCutoff(int cutoff) {
+        this.parallelCutoff = Math.max(2, cutoff);
+    }
+    
+    /**
+     * Cosa fa un algoritmo animato quando l'interfaccia resta indietro e il suo buffer di
+     * eventi e' pieno; vale dalla prossima esecuzione. Predefinita: {@link BackpressurePolicy#DROP_OLDEST}.
+     */
+    public void setBackpressure(String algorithm, BackpressurePolicy policy) {
+        if (!SORTERS.containsKey(algorithm)) {
+            throw new IllegalArgumentException("Algoritmo sconosciuto: " + algorithm);
+        }
+        backpressure.put(algorithm, policy);
+    }
+    
+    public BackpressurePolicy getBackpressure(String algorithm) {
+        return backpressure.getOrDefault(algorithm, BackpressurePolicy.DROP_OLDEST);
+    }
+    
+    /**
+     * Memoria massima, in byte, per gli istogrammi di Counting Sort. Se l'intervallo dei valori
+     * non ci sta nemmeno con un solo istogramma, Counting Sort ripiega su Radix Sort.
+     * Vale per tutto il processo, animazioni e benchmark compresi.
+     */
+    public static void setCountingMemoryBudget(long bytes) {
+        if (bytes < Integer.BYTES) {
+            throw new IllegalArgumentException("Memoria insufficiente: " + bytes);
+        }
+        countingBudget = bytes;
+    }
+    
+    /** Numero di worker usati dalle versioni parallele. */
+    public static int parallelism() {
+        return HEADLESS_POOL.getParallelism();
+    }
+    
+    /**
+     * Intervallo dei valori generati, estremi inclusi; puo' arrivare all'intero intervallo
+     * di int. Vale dal prossimo dataset generato.
+     */
+    public void setValueRange(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Intervallo vuoto: " + min + " > " + max);
+        }
+        this.minValue = min;
+        this.maxValue = max;
+    }
+    
+    /** Distribuzione dei valori. Vale dal prossimo dataset generato. */
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+    
+    /** Genera un nuovo dataset con un seme casuale. */
     public void generateNewDataset() {
-        originalData = new ArrayList<>();
-        for (int i = 0; i < arraySize; i++) {
-            originalData.add(random.nextInt(MAX_VALUE) + 1);
+        generateDataset(DatasetSpec.randomSeed());
+    }
+    
+    /**
+     * Genera il dataset identificato dal seme indicato e dalle impostazioni correnti di
+     * dimensione, intervallo e distribuzione: con lo stesso identificativo si ottiene lo stesso
+     * array e quindi, per ogni algoritmo, la stessa sequenza di passi.
+     */
+    public void generateDataset(long seed) {
+        dataset = new DatasetSpec(seed, arraySize, minValue, maxValue, distribution);
+        originalData = dataset.generate();
+    }
+    
+    /** Identificativo del dataset corrente. */
+    public DatasetSpec getDatasetSpec() {
+        return dataset;
+    }
+    
+    public int[] getOriginalData() {
+        return originalData.clone();
+    }
+    
+    /**
+     * Riassunto per colonne di pixel del dataset corrente, calcolato senza copiarlo:
+     * minimo, massimo e media di ogni colonna invece di un elemento campione ogni tanto.
+     */
+    PixelColumns getColumns(int columns) {
+        return new PixelColumns(originalData, Math.min(columns, originalData.length));
+    }
+    
+    /**
+     * Cadenza fissa delle animazioni, uguale per ogni algoritmo (e per ogni worker delle
+     * versioni parallele): a parita' di frequenza finisce prima chi fa meno passi.
+     */
+    public void setStepsPerSecond(double stepsPerSecond) {
+        if (!(stepsPerSecond > 0)) {
+            throw new IllegalArgumentException("Frequenza non positiva: " + stepsPerSecond);
+        }
+        this.stepsPerSecond = stepsPerSecond;
+        this.targetSeconds = 0;
+    }
+    
+    /**
+     * Cadenza scelta perche' l'algoritmo piu' lento duri all'incirca i secondi indicati:
+     * bubble sort su dati casuali fa circa 3n^2/4 passi (n^2/2 confronti e n^2/4 scambi).
+     */
+    public void setTargetDuration(double seconds) {
+        if (!(seconds > 0)) {
+            throw new IllegalArgumentException("Durata non positiva: " + seconds);
+        }
+        this.targetSeconds = seconds;
+        this.stepsPerSecond = 0;
+    }
+    
+    /** Passi al secondo delle animazioni con le impostazioni e il dataset correnti. */
+    public double getStepsPerSecond() {
+        if (targetSeconds == 0) {
+            return stepsPerSecond;
         }
+        double n = originalData.length;
+        return Math.max(1, 0.75 * n * n / targetSeconds);
     }
     
-    public List<Integer> getOriginalData() {
-        return new ArrayList<>(originalData);
+    /**
+     * Avvia tutti gli algoritmi animati e restituisce il controllo dell'esecuzione,
+     * con cui metterla in pausa, farla avanzare di un passo o annullarla, e da cui rivederla
+     * tramite le tracce registrate.
+     * Gli algoritmi sequenziali sono deterministici: sullo stesso dataset producono ogni volta
+     * la stessa sequenza di eventi. In quelli paralleli ogni worker ripete i propri passi, ma
+     * l'intreccio tra i worker dipende dallo scheduling.
+     */
+    public SortRun startSorting(SortingCallback callback) {
+        return startRun(callback, getStepsPerSecond(), true);
     }
     
-    private int getDelay() {
-        return Math.max(1, BASE_DELAY / arraySize);
+    /**
+     * Esegue tutti gli algoritmi senza pause di animazione registrandone soltanto le tracce,
+     * da rivedere poi con {@link SortTrace.Reader}. Al callback arrivano solo gli eventi DONE,
+     * con tempi e contatori; pausa e annullamento funzionano come in {@link #startSorting}.
+     */
+    public SortRun startRecording(SortingCallback callback) {
+        return startRun(callback, 0, false);
     }
     
-    public void startSorting(SortingVisualizerGUI.SortingCallback callback) {
+    private SortRun startRun(SortingCallback callback, double stepsPerSecond, boolean buffered) {
         AtomicInteger completedCount = new AtomicInteger(0);
-        int totalAlgorithms = 9;
+        int totalAlgorithms = SORTERS.size();
+        SortRun run = new SortRun(startBarrier ? totalAlgorithms : 0);
+        int cutoff = parallelCutoff;
+        boolean onDisk = originalData.length > HEAP_TRACE_MAX_SIZE;
         
-        CompletableFuture.allOf(
-            startBubbleSort(callback, completedCount, totalAlgorithms),
-            startSelectionSort(callback, completedCount, totalAlgorithms),
-            startInsertionSort(callback, completedCount, totalAlgorithms),
-            startQuickSort(callback, completedCount, totalAlgorithms),
-            startMergeSort(callback, completedCount, totalAlgorithms),
-            startHeapSort(callback, completedCount, totalAlgorithms),
-            startShellSort(callback, completedCount, totalAlgorithms),
-            startBinaryInsertionSort(callback, completedCount, totalAlgorithms),
-            startCountingSort(callback, completedCount, totalAlgorithms)
-        );
-    }
-    
-    private CompletableFuture<Void> startBubbleSort(SortingVisualizerGUI.SortingCallback callback,
-                                                   AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            int n = data.size();
-            for (int i = 0; i < n - 1; i++) {
-                boolean swapped = false;
-                for (int j = 0; j < n - i - 1; j++) {
-                    if (!startedFlag[0]) {
-                        startTimeRef[0] = System.currentTimeMillis();
-                        startedFlag[0] = true;
-                    }
-                    long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Bubble Sort", new ArrayList<>(data), Arrays.asList(j, j + 1), elapsedCompare, false);
-                    sleep(delay);
-                    if (data.get(j) > data.get(j + 1)) {
-                        Collections.swap(data, j, j + 1);
-                        swapped = true;
-                        long elapsedSwap = System.currentTimeMillis() - startTimeRef[0];
-                        callback.onProgress("Bubble Sort", new ArrayList<>(data), Arrays.asList(j, j + 1), elapsedSwap, false);
-                        sleep(delay);
-                    }
-                }
-                if (!swapped) break;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, Sorter> entry : SORTERS.entrySet()) {
+            SortTrace trace = run.record(entry.getKey(), originalData, onDisk);
+            BackpressurePolicy policy = getBackpressure(entry.getKey());
+            futures.add(runPaced(run, () -> {
+                PacingProbe probe = new PacingProbe(entry.getKey(), callback, stepsPerSecond, run, trace, buffered, policy);
+                IntArray data = new IntArray(originalData.clone(), probe);
+                entry.getValue().sort(data, probe, pacedForkJoinPool, cutoff);
+                finish(probe, callback, completedCount, totalAlgorithms);
+            }));
+        }
+        run.setCompletion(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+        return run;
+    }
+    
+    /**
+     * Modalita' "velocita' reale": esegue tutti gli algoritmi sul dataset
+     * corrente, senza pause ne' eventi, e restituisce per ciascuno il tempo mediano
+     * di un ordinamento in nanosecondi (misurato con System.nanoTime dopo il riscaldamento del JIT).
+     */
+    public Map<String, Long> runBenchmark() {
+        return startBenchmark().join();
+    }
+    
+    /**
+     * Avvia il benchmark sul dataset corrente nel pool CPU-bound, dimensionato sui core:
+     * ogni algoritmo sequenziale gira su un proprio thread senza contendersi i core con gli altri
+     * ne' con i thread dell'animazione, che dormono quasi sempre. Le versioni parallele
+     * vengono misurate dopo, una alla volta, cosi' il confronto con quelle sequenziali
+     * riflette la scalabilita' sui core e non la contesa. Le misure sequenziali in contemporanea
+     * sono al piu' quante ne entrano nello heap libero ({@link #benchmarkLanes}): con array grandi
+     * si va in fila. Oltre {@value #BENCHMARK_QUADRATIC_MAX} elementi i casi quadratici non vengono
+     * misurati e mancano dalla mappa dei risultati.
+     */
+    public CompletableFuture<Map<String, Long>> startBenchmark() {
+        int[] source = originalData.clone();
+        // una soglia da animazione misurerebbe solo il costo del fork, non la scalabilita'
+        int cutoff = DEFAULT_PARALLEL_CUTOFF;
+        DatasetSpec spec = dataset;
+        Map<String, CompletableFuture<Long>> futures = new LinkedHashMap<>();
+        // ogni corsia misura i suoi algoritmi uno dopo l'altro
+        List<CompletableFuture<Long>> lanes = new ArrayList<>();
+        for (int lane = benchmarkLanes(source.length); lane > 0; lane--) {
+            lanes.add(CompletableFuture.completedFuture(0L));
+        }
+        int next = 0;
+        for (String algorithm : SORTERS.keySet()) {
+            if (source.length > BENCHMARK_QUADRATIC_MAX && isQuadratic(algorithm, spec)) {
+                continue;
+            }
+            if (!PARALLEL.contains(algorithm)) {
+                CompletableFuture<Long> measured = lanes.get(next).thenApplyAsync(
+                    ignored -> benchmark(algorithm, source, cutoff), cpuExecutor);
+                lanes.set(next, measured);
+                next = (next + 1) % lanes.size();
+                futures.put(algorithm, measured);
             }
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
+        }
+        CompletableFuture<Void> sequential = CompletableFuture.allOf(lanes.toArray(new CompletableFuture<?>[0]));
+        CompletableFuture<Long> previous = sequential.thenApply(ignored -> 0L);
+        for (String algorithm : PARALLEL) {
+            if (source.length > BENCHMARK_QUADRATIC_MAX && isQuadratic(algorithm, spec)) {
+                continue;
             }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Bubble Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
+            previous = previous.thenApplyAsync(ignored -> benchmark(algorithm, source, cutoff), cpuExecutor);
+            futures.put(algorithm, previous);
+        }
+        return previous.thenApply(ignored -> {
+            Map<String, Long> results = new LinkedHashMap<>();
+            for (String algorithm : SORTERS.keySet()) {
+                if (futures.containsKey(algorithm)) {
+                    results.put(algorithm, futures.get(algorithm).join());
+                }
             }
+            return results;
         });
     }
     
-    private CompletableFuture<Void> startSelectionSort(SortingVisualizerGUI.SortingCallback callback,
-                                                      AtomicInteger completedCount, int totalAlgorithms) {
+    /**
+     * Scrive in un file di int big-endian il dataset con il seme, l'intervallo e la distribuzione
+     * correnti ma con la dimensione indicata, generandolo a blocchi: puo' superare lo heap.
+     */
+    public CompletableFuture<Void> writeDatasetFile(Path file, int size) {
+        DatasetSpec spec = new DatasetSpec(dataset.getSeed(), size, minValue, maxValue, distribution);
         return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            int n = data.size();
-            for (int i = 0; i < n - 1; i++) {
-                int minIdx = i;
-                for (int j = i + 1; j < n; j++) {
-                    if (!startedFlag[0]) {
-                        startTimeRef[0] = System.currentTimeMillis();
-                        startedFlag[0] = true;
-                    }
-                    long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Selection Sort", new ArrayList<>(data), Arrays.asList(j, minIdx), elapsedCompare, false);
-                    sleep(delay);
-                    if (data.get(j) < data.get(minIdx)) {
-                        minIdx = j;
-                        long elapsedMin = System.currentTimeMillis() - startTimeRef[0];
-                        callback.onProgress("Selection Sort", new ArrayList<>(data), Arrays.asList(minIdx, i), elapsedMin, false);
-                        sleep(delay);
-                    }
-                }
-                if (minIdx != i) {
-                    Collections.swap(data, i, minIdx);
-                    long elapsedSwap = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Selection Sort", new ArrayList<>(data), Arrays.asList(i, minIdx), elapsedSwap, false);
-                    sleep(delay);
-                }
-            }
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
+            try {
+                spec.writeTo(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Selection Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
-            }
-        });
+        }, cpuExecutor);
+    }
+    
+    /**
+     * Avvia l'ordinamento esterno di un file di int big-endian in un altro file, con run
+     * dimensionati sullo heap e fusione a {@value ExternalMergeSort#DEFAULT_FAN_IN} vie.
+     */
+    public ExternalMergeSort startExternalSort(Path input, Path output) {
+        return startExternalSort(input, output, ExternalMergeSort.defaultRunLength(), ExternalMergeSort.DEFAULT_FAN_IN);
+    }
+    
+    /** Come {@link #startExternalSort(Path, Path)}, con run di runLength elementi fusi a fanIn vie. */
+    public ExternalMergeSort startExternalSort(Path input, Path output, int runLength, int fanIn) {
+        ExternalMergeSort sort = new ExternalMergeSort(input, output, runLength, fanIn);
+        sort.setCompletion(CompletableFuture.runAsync(sort::execute, cpuExecutor));
+        return sort;
+    }
+    
+    /** Nomi delle strategie della modalita' streaming. */
+    public static String[] streamingStrategies() {
+        return STREAMING_SORTERS.keySet().toArray(new String[0]);
+    }
+    
+    /**
+     * Avvia la modalita' streaming: un thread generatore emette count valori (con il seme,
+     * l'intervallo e la distribuzione correnti) a valuesPerSecond valori al secondo, o tutti
+     * subito se la frequenza e' zero, e ogni strategia li inserisce nel proprio thread
+     * misurando la latenza di ciascun inserimento.
+     */
+    public StreamingRun startStreaming(int count, double valuesPerSecond) {
+        if (valuesPerSecond < 0) {
+            throw new IllegalArgumentException("Frequenza negativa: " + valuesPerSecond);
+        }
+        int[] values = new DatasetSpec(dataset.getSeed(), count, minValue, maxValue, distribution).generate();
+        Map<String, StreamingSorter> sorters = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<StreamingSorter>> entry : STREAMING_SORTERS.entrySet()) {
+            sorters.put(entry.getKey(), entry.getValue().get());
+        }
+        StreamingRun run = new StreamingRun(values, valuesPerSecond, sorters);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(CompletableFuture.runAsync(run::produce, streamingExecutor));
+        for (String strategy : sorters.keySet()) {
+            futures.add(CompletableFuture.runAsync(() -> run.consume(strategy), streamingExecutor));
+        }
+        run.setCompletion(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+        return run;
+    }
+    
+    /**
+     * Algoritmi quadratici sul dataset indicato. Le versioni semplici escono presto sull'input
+     * ordinato; Quick Sort prende come pivot l'ultimo elemento e partiziona con {@code <=}, per cui
+     * degenera su input ordinato o invertito e quando i valori ripetuti sono molti rispetto alla dimensione.
+     * La ricorsione resta comunque entro log2(n) livelli. La stessa regola vale per {@code SortingBenchmark}.
+     */
+    static boolean isQuadratic(String algorithm, DatasetSpec spec) {
+        switch (algorithm) {
+            case "Selection Sort":
+                return true;
+            case "Bubble Sort":
+            case "Insertion Sort":
+            case "Binary Insertion Sort":
+                return spec.getDistribution() != Distribution.SORTED;
+            case "Quick Sort":
+            case "Parallel Quick Sort":
+                return spec.getDistribution() != Distribution.RANDOM || spec.span() < spec.getSize();
+            default:
+                return false;
+        }
     }
     
-    private CompletableFuture<Void> startInsertionSort(SortingVisualizerGUI.SortingCallback callback,
-                                                      AtomicInteger completedCount, int totalAlgorithms) {
+    /**
+     * Misure sequenziali da far girare insieme: una per core, ma non piu' di quante ne stanno
+     * nello heap ancora libero, e almeno una.
+     */
+    private static int benchmarkLanes(int size) {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long perRun = (long) BENCHMARK_ARRAYS_PER_RUN * Math.max(1, size) * Integer.BYTES;
+        return (int) Math.max(1, Math.min(runtime.availableProcessors(), free / perRun));
+    }
+    
+    private long benchmark(String algorithm, int[] source, int cutoff) {
+        int[] work = new int[source.length];
+        IntArray data = new IntArray(work);
+        
+        long warmupEnd = System.nanoTime() + BENCHMARK_WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            System.arraycopy(source, 0, work, 0, work.length);
+            sortHeadless(algorithm, data, cutoff);
+        }
+        
+        long[] samples = new long[BENCHMARK_MAX_RUNS];
+        int runs = 0;
+        long measureEnd = System.nanoTime() + BENCHMARK_MEASURE_NANOS;
+        do {
+            System.arraycopy(source, 0, work, 0, work.length);
+            long start = System.nanoTime();
+            sortHeadless(algorithm, data, cutoff);
+            samples[runs++] = System.nanoTime() - start;
+        } while (runs < samples.length && System.nanoTime() < measureEnd);
+        
+        Arrays.sort(samples, 0, runs);
+        return samples[runs / 2];
+    }
+    
+    /** Nomi degli algoritmi, nell'ordine in cui vengono avviati. */
+    static String[] algorithmNames() {
+        return SORTERS.keySet().toArray(new String[0]);
+    }
+    
+    /** Ordina senza pause ne' eventi: e' il percorso misurato dai benchmark. */
+    static void sortHeadless(String algorithm, IntArray data) {
+        sortHeadless(algorithm, data, DEFAULT_PARALLEL_CUTOFF);
+    }
+    
+    static void sortHeadless(String algorithm, IntArray data, int parallelCutoff) {
+        Sorter sorter = SORTERS.get(algorithm);
+        if (sorter == null) {
+            throw new IllegalArgumentException("Algoritmo sconosciuto: " + algorithm);
+        }
+        sorter.sort(data, SortProbe.NO_OP, HEADLESS_POOL, parallelCutoff);
+    }
+    
+    /**
+     * Avvia un algoritmo animato sul suo executor dedicato. L'executor non ha limiti
+     * di thread: con un pool limitato la partenza comune non si sbloccherebbe mai.
+     * Un'esecuzione annullata termina senza chiamare finish: il thread torna subito libero.
+     */
+    private CompletableFuture<Void> runPaced(SortRun run, Runnable task) {
         return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            int n = data.size();
-            for (int i = 1; i < n; i++) {
-                int key = data.get(i);
-                int j = i - 1;
-                while (j >= 0 && data.get(j) > key) {
-                    if (!startedFlag[0]) {
-                        startTimeRef[0] = System.currentTimeMillis();
-                        startedFlag[0] = true;
-                    }
-                    long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Insertion Sort", new ArrayList<>(data), Arrays.asList(j, i), elapsedCompare, false);
-                    sleep(delay);
-                    data.set(j + 1, data.get(j));
-                    long elapsedShift = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Insertion Sort", new ArrayList<>(data), Arrays.asList(j, j + 1), elapsedShift, false);
-                    sleep(delay);
-                    j--;
-                }
-                data.set(j + 1, key);
-                if (!startedFlag[0]) {
-                    startTimeRef[0] = System.currentTimeMillis();
-                    startedFlag[0] = true;
+            try {
+                run.awaitStart();
+                task.run();
+            } catch (CancellationException e) {
+                // annullata dall'utente
+            }
+        }, pacedExecutor);
+    }
+    
+    /**
+     * Thread virtuali quando la JVM li offre (Java 21+), altrimenti un thread di piattaforma
+     * per esecuzione. Il progetto compila per Java 8, quindi il metodo si cerca per riflessione.
+     */
+    private static ExecutorService newPacedExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads("sorting-paced-"));
+        }
+    }
+    
+    private static ForkJoinPool newForkJoinPool(String prefix) {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(prefix + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private void finish(PacingProbe probe, SortingCallback callback,
+                        AtomicInteger completedCount, int totalAlgorithms) {
+        probe.done();
+        if (completedCount.incrementAndGet() == totalAlgorithms) {
+            callback.onAllCompleted();
+        }
+    }
+    
+    private static void bubbleSort(IntArray data, SortProbe probe) {
+        int n = data.size();
+        for (int i = 0; i < n - 1; i++) {
+            boolean swapped = false;
+            for (int j = 0; j < n - i - 1; j++) {
+                probe.compare(j, j + 1);
+                if (data.get(j) > data.get(j + 1)) {
+                    data.swap(j, j + 1);
+                    swapped = true;
                 }
-                long elapsedInsert = System.currentTimeMillis() - startTimeRef[0];
-                callback.onProgress("Insertion Sort", new ArrayList<>(data), Arrays.asList(j + 1), elapsedInsert, false);
-                sleep(delay);
             }
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
+            if (!swapped) break;
+        }
+    }
+    
+    private static void selectionSort(IntArray data, SortProbe probe) {
+        int n = data.size();
+        for (int i = 0; i < n - 1; i++) {
+            int minIdx = i;
+            for (int j = i + 1; j < n; j++) {
+                probe.compare(j, minIdx);
+                if (data.get(j) < data.get(minIdx)) {
+                    minIdx = j;
+                }
             }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Insertion Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
+            if (minIdx != i) {
+                data.swap(i, minIdx);
             }
-        });
+        }
     }
     
-    private CompletableFuture<Void> startQuickSort(SortingVisualizerGUI.SortingCallback callback,
-                                                  AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            quickSort(data, 0, data.size() - 1, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Quick Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
+    private static void insertionSort(IntArray data, SortProbe probe) {
+        int n = data.size();
+        for (int i = 1; i < n; i++) {
+            int key = data.get(i);
+            int j = i - 1;
+            // anche il confronto che ferma il ciclo e' un confronto; la chiave e' fuori dall'array
+            // e andrebbe in j + 1, dove si segna (l'indice i e' gia' stato sovrascritto)
+            while (j >= 0) {
+                probe.compare(j, j + 1);
+                if (data.get(j) <= key) break;
+                data.set(j + 1, data.get(j));
+                j--;
             }
-        });
+            data.set(j + 1, key);
+        }
     }
     
-    private void quickSort(List<Integer> data, int low, int high,
-                          SortingVisualizerGUI.SortingCallback callback,
-                          long[] startTimeRef, boolean[] startedFlag, int delay) {
-        if (low < high) {
-            int pi = partition(data, low, high, callback, startTimeRef, startedFlag, delay);
-            quickSort(data, low, pi - 1, callback, startTimeRef, startedFlag, delay);
-            quickSort(data, pi + 1, high, callback, startTimeRef, startedFlag, delay);
+    /**
+     * Ricorre sulla parte piu' piccola e prosegue in ciclo sulla piu' grande: anche quando il
+     * pivot degenera, come su input ordinato o invertito, la ricorsione resta entro log2(n) livelli.
+     */
+    private static void quickSort(IntArray data, int low, int high, SortProbe probe) {
+        if (low >= high) return;
+        probe.enter();
+        while (low < high) {
+            int pi = partition(data, low, high, probe);
+            if (pi - low < high - pi) {
+                quickSort(data, low, pi - 1, probe);
+                low = pi + 1;
+            } else {
+                quickSort(data, pi + 1, high, probe);
+                high = pi - 1;
+            }
         }
+        probe.leave();
     }
     
-    private int partition(List<Integer> data, int low, int high,
-                         SortingVisualizerGUI.SortingCallback callback,
-                         long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static int partition(IntArray data, int low, int high, SortProbe probe) {
         int pivot = data.get(high);
         int i = low - 1;
         for (int j = low; j < high; j++) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Quick Sort", new ArrayList<>(data), Arrays.asList(j, high), elapsedCompare, false);
-            sleep(delay);
+            probe.compare(j, high);
             if (data.get(j) <= pivot) {
                 i++;
-                Collections.swap(data, i, j);
-                long elapsedSwap = System.currentTimeMillis() - startTimeRef[0];
-                callback.onProgress("Quick Sort", new ArrayList<>(data), Arrays.asList(i, j), elapsedSwap, false);
-                sleep(delay);
+                data.swap(i, j);
             }
         }
-        Collections.swap(data, i + 1, high);
-        long elapsedSwapPivot = System.currentTimeMillis() - startTimeRef[0];
-        callback.onProgress("Quick Sort", new ArrayList<>(data), Arrays.asList(i + 1, high), elapsedSwapPivot, false);
-        sleep(delay);
+        data.swap(i + 1, high);
         return i + 1;
     }
     
-    private CompletableFuture<Void> startMergeSort(SortingVisualizerGUI.SortingCallback callback,
-                                                   AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            mergeSort(data, 0, data.size() - 1, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Merge Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
-            }
-        });
-    }
-    
-    private void mergeSort(List<Integer> data, int left, int right,
-                           SortingVisualizerGUI.SortingCallback callback,
-                           long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void mergeSort(IntArray data, int left, int right, SortProbe probe) {
         if (left < right) {
+            probe.enter();
             int mid = (left + right) / 2;
-            mergeSort(data, left, mid, callback, startTimeRef, startedFlag, delay);
-            mergeSort(data, mid + 1, right, callback, startTimeRef, startedFlag, delay);
-            merge(data, left, mid, right, callback, startTimeRef, startedFlag, delay);
+            mergeSort(data, left, mid, probe);
+            mergeSort(data, mid + 1, right, probe);
+            merge(data, left, mid, right, probe);
+            probe.leave();
         }
     }
     
-    private void merge(List<Integer> data, int left, int mid, int right,
-                       SortingVisualizerGUI.SortingCallback callback,
-                       long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void merge(IntArray data, int left, int mid, int right, SortProbe probe) {
         int n1 = mid - left + 1;
         int n2 = right - mid;
-        List<Integer> L = new ArrayList<>(n1);
-        List<Integer> R = new ArrayList<>(n2);
+        int[] L = new int[n1];
+        int[] R = new int[n2];
+        probe.allocate(n1 + n2);
         
         for (int i = 0; i < n1; i++) {
-            L.add(data.get(left + i));
+            L[i] = data.get(left + i);
         }
         for (int j = 0; j < n2; j++) {
-            R.add(data.get(mid + 1 + j));
+            R[j] = data.get(mid + 1 + j);
         }
         
         int i = 0, j = 0, k = left;
         while (i < n1 && j < n2) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            int idxL = left + i;
-            int idxR = mid + 1 + j;
-            long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Merge Sort", new ArrayList<>(data), Arrays.asList(idxL, idxR), elapsedCompare, false);
-            sleep(delay);
-            if (L.get(i) <= R.get(j)) {
-                data.set(k, L.get(i));
+            // L[i] non e' piu' in left + i, che puo' gia' essere stato sovrascritto: si segna il posto
+            // che riceve il minore, k, e R[j], ancora in mid + 1 + j perche' k resta sempre indietro
+            probe.compare(k, mid + 1 + j);
+            if (L[i] <= R[j]) {
+                data.set(k, L[i]);
                 i++;
             } else {
-                data.set(k, R.get(j));
+                data.set(k, R[j]);
                 j++;
             }
-            long elapsedWrite = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Merge Sort", new ArrayList<>(data), Arrays.asList(k), elapsedWrite, false);
-            sleep(delay);
             k++;
         }
         while (i < n1) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            data.set(k, L.get(i));
-            long elapsedLeft = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Merge Sort", new ArrayList<>(data), Arrays.asList(k), elapsedLeft, false);
-            sleep(delay);
+            data.set(k, L[i]);
             i++;
             k++;
         }
         while (j < n2) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            data.set(k, R.get(j));
-            long elapsedRight = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Merge Sort", new ArrayList<>(data), Arrays.asList(k), elapsedRight, false);
-            sleep(delay);
+            data.set(k, R[j]);
             j++;
             k++;
         }
+        probe.release(n1 + n2);
     }
     
-    private CompletableFuture<Void> startHeapSort(SortingVisualizerGUI.SortingCallback callback,
-                                                  AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            heapSort(data, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Heap Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
-            }
-        });
-    }
-    
-    private void heapSort(List<Integer> data, SortingVisualizerGUI.SortingCallback callback,
-                          long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void heapSort(IntArray data, SortProbe probe) {
         int n = data.size();
         for (int i = n / 2 - 1; i >= 0; i--) {
-            heapify(data, n, i, callback, startTimeRef, startedFlag, delay);
+            heapify(data, n, i, probe);
         }
         for (int i = n - 1; i > 0; i--) {
-            Collections.swap(data, 0, i);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedSwap = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Heap Sort", new ArrayList<>(data), Arrays.asList(0, i), elapsedSwap, false);
-            sleep(delay);
-            heapify(data, i, 0, callback, startTimeRef, startedFlag, delay);
+            data.swap(0, i);
+            heapify(data, i, 0, probe);
         }
     }
     
-    private void heapify(List<Integer> data, int heapSize, int rootIndex,
-                         SortingVisualizerGUI.SortingCallback callback,
-                         long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void heapify(IntArray data, int heapSize, int rootIndex, SortProbe probe) {
         int largest = rootIndex;
         int left = 2 * rootIndex + 1;
         int right = 2 * rootIndex + 2;
         
         if (left < heapSize) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedCompareLeft = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Heap Sort", new ArrayList<>(data), Arrays.asList(rootIndex, left), elapsedCompareLeft, false);
-            sleep(delay);
+            probe.compare(rootIndex, left);
             if (data.get(left) > data.get(largest)) {
                 largest = left;
             }
         }
         if (right < heapSize) {
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedCompareRight = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Heap Sort", new ArrayList<>(data), Arrays.asList(largest, right), elapsedCompareRight, false);
-            sleep(delay);
+            probe.compare(largest, right);
             if (data.get(right) > data.get(largest)) {
                 largest = right;
             }
         }
         if (largest != rootIndex) {
-            Collections.swap(data, rootIndex, largest);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedSwap = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Heap Sort", new ArrayList<>(data), Arrays.asList(rootIndex, largest), elapsedSwap, false);
-            sleep(delay);
-            heapify(data, heapSize, largest, callback, startTimeRef, startedFlag, delay);
+            data.swap(rootIndex, largest);
+            probe.enter();
+            heapify(data, heapSize, largest, probe);
+            probe.leave();
         }
     }
     
-    private CompletableFuture<Void> startShellSort(SortingVisualizerGUI.SortingCallback callback,
-                                                   AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            shellSort(data, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Shell Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
-            }
-        });
-    }
-    
-    private void shellSort(List<Integer> data, SortingVisualizerGUI.SortingCallback callback,
-                           long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void shellSort(IntArray data, SortProbe probe) {
         int n = data.size();
         for (int gap = n / 2; gap > 0; gap /= 2) {
             for (int i = gap; i < n; i++) {
                 int temp = data.get(i);
                 int j = i;
-                while (j >= gap && data.get(j - gap) > temp) {
-                    if (!startedFlag[0]) {
-                        startTimeRef[0] = System.currentTimeMillis();
-                        startedFlag[0] = true;
-                    }
-                    long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Shell Sort", new ArrayList<>(data), Arrays.asList(j - gap, j), elapsedCompare, false);
-                    sleep(delay);
+                while (j >= gap) {
+                    probe.compare(j - gap, j);
+                    if (data.get(j - gap) <= temp) break;
                     data.set(j, data.get(j - gap));
-                    long elapsedShift = System.currentTimeMillis() - startTimeRef[0];
-                    callback.onProgress("Shell Sort", new ArrayList<>(data), Arrays.asList(j, j - gap), elapsedShift, false);
-                    sleep(delay);
                     j -= gap;
                 }
                 data.set(j, temp);
-                if (!startedFlag[0]) {
-                    startTimeRef[0] = System.currentTimeMillis();
-                    startedFlag[0] = true;
-                }
-                long elapsedInsert = System.currentTimeMillis() - startTimeRef[0];
-                callback.onProgress("Shell Sort", new ArrayList<>(data), Arrays.asList(j), elapsedInsert, false);
-                sleep(delay);
             }
         }
     }
     
-    private CompletableFuture<Void> startBinaryInsertionSort(SortingVisualizerGUI.SortingCallback callback,
-                                                             AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            binaryInsertionSort(data, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Binary Insertion Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
-            }
-        });
-    }
-    
-    private void binaryInsertionSort(List<Integer> data, SortingVisualizerGUI.SortingCallback callback,
-                                     long[] startTimeRef, boolean[] startedFlag, int delay) {
+    private static void binaryInsertionSort(IntArray data, SortProbe probe) {
         int n = data.size();
         for (int i = 1; i < n; i++) {
             int key = data.get(i);
-            int insertIdx = binarySearchForInsertion(data, key, 0, i - 1, callback, startTimeRef, startedFlag, delay);
+            int insertIdx = binarySearchForInsertion(data, key, 0, i - 1, probe);
             for (int j = i - 1; j >= insertIdx; j--) {
-                if (!startedFlag[0]) {
-                    startTimeRef[0] = System.currentTimeMillis();
-                    startedFlag[0] = true;
-                }
                 data.set(j + 1, data.get(j));
-                long elapsedShift = System.currentTimeMillis() - startTimeRef[0];
-                callback.onProgress("Binary Insertion Sort", new ArrayList<>(data), Arrays.asList(j, j + 1), elapsedShift, false);
-                sleep(delay);
             }
             data.set(insertIdx, key);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedInsert = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Binary Insertion Sort", new ArrayList<>(data), Arrays.asList(insertIdx), elapsedInsert, false);
-            sleep(delay);
         }
     }
     
-    private int binarySearchForInsertion(List<Integer> data, int key, int left, int right,
-                                         SortingVisualizerGUI.SortingCallback callback,
-                                         long[] startTimeRef, boolean[] startedFlag, int delay) {
+    /**
+     * Prima posizione in data[left..right] con valore maggiore di key: dopo gli uguali, cosi'
+     * l'ordinamento resta stabile. Un solo confronto per livello.
+     */
+    private static int binarySearchForInsertion(IntArray data, int key, int left, int right, SortProbe probe) {
         if (left > right) {
             return left;
         }
         int mid = (left + right) / 2;
-        if (!startedFlag[0]) {
-            startTimeRef[0] = System.currentTimeMillis();
-            startedFlag[0] = true;
-        }
-        long elapsedCompare = System.currentTimeMillis() - startTimeRef[0];
-        callback.onProgress("Binary Insertion Sort", new ArrayList<>(data), Arrays.asList(mid), elapsedCompare, false);
-        sleep(delay);
-        if (data.get(mid) == key) {
-            return mid + 1;
-        }
-        if (data.get(mid) < key) {
-            return binarySearchForInsertion(data, key, mid + 1, right, callback, startTimeRef, startedFlag, delay);
+        probe.compare(mid, NONE);
+        probe.enter();
+        int insertIdx = data.get(mid) <= key
+            ? binarySearchForInsertion(data, key, mid + 1, right, probe)
+            : binarySearchForInsertion(data, key, left, mid - 1, probe);
+        probe.leave();
+        return insertIdx;
+    }
+    
+    /**
+     * Counting sort parallelo. Minimo e massimo si trovano in una sola passata, divisa tra i blocchi
+     * dell'array; poi ogni blocco conta i propri valori in un istogramma privato. Gli istogrammi
+     * si sommano per fasce di valori in parallelo e una somma prefissa da' la posizione iniziale
+     * di ogni valore: a quel punto ogni blocco riempie da solo il proprio tratto dell'array.
+     * Se gli istogrammi supererebbero la memoria di {@link #setCountingMemoryBudget} se ne usano
+     * meno; se non ne basta nemmeno uno, l'intervallo e' troppo sparso e si passa a Radix Sort.
+     */
+    private static void countingSort(IntArray data, SortProbe probe, ForkJoinPool pool, int cutoff) {
+        int n = data.size();
+        if (n < 2) return;
+        
+        int blocks = blockCount(n, pool, cutoff);
+        int[] blockMin = new int[blocks];
+        int[] blockMax = new int[blocks];
+        forEachPart(pool, probe, blocks, block -> {
+            int low = blockStart(block, blocks, n);
+            int high = blockStart(block + 1, blocks, n);
+            probe.range(low, high - 1);
+            int min = data.get(low);
+            int max = min;
+            for (int i = low + 1; i < high; i++) {
+                int value = data.get(i);
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            blockMin[block] = min;
+            blockMax[block] = max;
+        });
+        int min = blockMin[0];
+        int max = blockMax[0];
+        for (int block = 1; block < blocks; block++) {
+            min = Math.min(min, blockMin[block]);
+            max = Math.max(max, blockMax[block]);
+        }
+        
+        long budget = Math.min(countingBudget / Integer.BYTES, MAX_ARRAY_LENGTH);
+        if ((long) max - min + 1 > budget) {
+            // con valori cosi' sparsi nemmeno un istogramma starebbe nella memoria concessa
+            radixSort(data, probe, pool, cutoff);
+            return;
+        }
+        int range = max - min + 1;
+        int countBlocks = (int) Math.min(blocks, budget / range);
+        int offset = min;
+        
+        int[][] counts = new int[countBlocks][];
+        probe.allocate(countBlocks * range);
+        forEachPart(pool, probe, countBlocks, block -> {
+            int[] count = new int[range];
+            counts[block] = count;
+            int low = blockStart(block, countBlocks, n);
+            int high = blockStart(block + 1, countBlocks, n);
+            probe.range(low, high - 1);
+            // contare non confronta elementi: la passata pesa solo come letture, come in Radix Sort
+            for (int i = low; i < high; i++) {
+                count[data.get(i) - offset]++;
+            }
+        });
+        
+        // il primo istogramma raccoglie i totali, poi diventa la tabella delle posizioni
+        int[] start = counts[0];
+        if (countBlocks > 1) {
+            int stripes = blockCount(range, pool, cutoff);
+            forEachPart(pool, probe, stripes, stripe -> {
+                int high = blockStart(stripe + 1, stripes, range);
+                for (int block = 1; block < countBlocks; block++) {
+                    int[] count = counts[block];
+                    for (int value = blockStart(stripe, stripes, range); value < high; value++) {
+                        start[value] += count[value];
+                    }
+                }
+            });
+        }
+        int position = 0;
+        for (int value = 0; value < range; value++) {
+            int count = start[value];
+            start[value] = position;
+            position += count;
+        }
+        
+        forEachPart(pool, probe, blocks, block -> {
+            int low = blockStart(block, blocks, n);
+            int high = blockStart(block + 1, blocks, n);
+            probe.range(low, high - 1);
+            int value = lastValueStartingBy(start, low);
+            for (int i = low; i < high; value++) {
+                int end = value + 1 < range ? Math.min(high, start[value + 1]) : high;
+                while (i < end) {
+                    data.set(i++, offset + value);
+                }
+            }
+        });
+        probe.release(countBlocks * range);
+    }
+    
+    /** L'ultimo valore la cui prima posizione non supera index: quello che occupa index. */
+    private static int lastValueStartingBy(int[] start, int index) {
+        int low = 0;
+        int high = start.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (start[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+    
+    /** Blocchi in cui dividere n elementi: al piu' uno per worker, nessuno sotto la soglia. */
+    private static int blockCount(int n, ForkJoinPool pool, int cutoff) {
+        return Math.max(1, Math.min(pool.getParallelism(), n / cutoff));
+    }
+    
+    private static int blockStart(int block, int blocks, int n) {
+        return (int) ((long) block * n / blocks);
+    }
+    
+    /**
+     * Esegue action per ogni parte da 0 a parts - 1 sui worker del pool, dividendo a meta'
+     * l'intervallo delle parti. Con una sola parte resta nel thread corrente, senza passare dal pool.
+     * Ogni parte finisce con {@link SortProbe#sync()}: la fase successiva vede tutti i suoi eventi.
+     */
+    private static void forEachPart(ForkJoinPool pool, SortProbe probe, int parts, IntConsumer action) {
+        if (parts == 1) {
+            action.accept(0);
         } else {
-            return binarySearchForInsertion(data, key, left, mid - 1, callback, startTimeRef, startedFlag, delay);
+            pool.invoke(new PartsTask(0, parts, part -> {
+                action.accept(part);
+                probe.sync();
+            }));
         }
     }
     
-    private CompletableFuture<Void> startCountingSort(SortingVisualizerGUI.SortingCallback callback,
-                                                      AtomicInteger completedCount, int totalAlgorithms) {
-        return CompletableFuture.runAsync(() -> {
-            List<Integer> data = new ArrayList<>(originalData);
-            final long[] startTimeRef = {0L};
-            final boolean[] startedFlag = {false};
-            int delay = getDelay();
-            
-            countingSort(data, callback, startTimeRef, startedFlag, delay);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            long elapsedFinal = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Counting Sort", data, Collections.emptyList(), elapsedFinal, true);
-            
-            if (completedCount.incrementAndGet() == totalAlgorithms) {
-                callback.onAllCompleted();
+    private static final class PartsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int low;
+        private final int high;
+        private final IntConsumer action;
+        
+        PartsTask(int low, int high, IntConsumer action) {
+            this.low = low;
+            this.high = high;
+            this.action = action;
+        }
+        
+        @Override
+        protected void compute() {
+            if (high - low == 1) {
+                action.accept(low);
+                return;
             }
-        });
+            int mid = (low + high) >>> 1;
+            invokeAll(new PartsTask(low, mid, action), new PartsTask(mid, high, action));
+        }
+    }
+    
+    /**
+     * Radix sort LSD su cifre da {@value #RADIX_BITS} bit, con il bit del segno invertito perche'
+     * i negativi vengano prima. Ogni passata e' un counting sort stabile sulla cifra tra l'array
+     * e un unico buffer ausiliario, a ruoli alterni. L'array e' diviso in blocchi che contano
+     * le cifre in parallelo, ciascuno nel proprio istogramma; con le somme prefisse per cifra e
+     * per blocco ogni blocco sa dove scrivere e distribuisce i suoi elementi senza coordinarsi
+     * con gli altri. Le passate in cui tutti gli elementi hanno la stessa cifra si saltano.
+     */
+    private static void radixSort(IntArray data, SortProbe probe, ForkJoinPool pool, int cutoff) {
+        int n = data.size();
+        if (n < 2) return;
+        int blocks = blockCount(n, pool, cutoff);
+        int[] buffer = new int[n];
+        int[][] counts = new int[blocks][RADIX];
+        probe.allocate(n + blocks * RADIX);
+        boolean inBuffer = false;
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            boolean fromBuffer = inBuffer;
+            int digitShift = shift;
+            forEachPart(pool, probe, blocks, block -> {
+                int low = blockStart(block, blocks, n);
+                int high = blockStart(block + 1, blocks, n);
+                int[] count = counts[block];
+                probe.range(low, high - 1);
+                Arrays.fill(count, 0);
+                for (int i = low; i < high; i++) {
+                    count[digit(fromBuffer ? buffer[i] : data.get(i), digitShift)]++;
+                }
+            });
+            if (isSingleDigit(counts, n)) {
+                continue;
+            }
+            int position = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                for (int[] blockCounts : counts) {
+                    int count = blockCounts[digit];
+                    blockCounts[digit] = position;
+                    position += count;
+                }
+            }
+            forEachPart(pool, probe, blocks, block -> {
+                int low = blockStart(block, blocks, n);
+                int high = blockStart(block + 1, blocks, n);
+                int[] next = counts[block];
+                probe.range(low, high - 1);
+                for (int i = low; i < high; i++) {
+                    int value = fromBuffer ? buffer[i] : data.get(i);
+                    int target = next[digit(value, digitShift)]++;
+                    if (fromBuffer) {
+                        data.set(target, value);
+                    } else {
+                        buffer[target] = value;
+                    }
+                }
+            });
+            inBuffer = !inBuffer;
+        }
+        if (inBuffer) {
+            for (int i = 0; i < n; i++) {
+                data.set(i, buffer[i]);
+            }
+        }
+        probe.release(n + blocks * RADIX);
+    }
+    
+    private static int digit(int value, int shift) {
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK;
+    }
+    
+    private static boolean isSingleDigit(int[][] counts, int n) {
+        for (int digit = 0; digit < RADIX; digit++) {
+            int total = 0;
+            for (int[] blockCounts : counts) {
+                total += blockCounts[digit];
+            }
+            if (total == n) {
+                return true;
+            }
+            if (total > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private static void parallelMergeSort(IntArray data, SortProbe probe, ForkJoinPool pool, int cutoff) {
+        if (data.size() < 2) return;
+        probe.allocate(data.size());
+        pool.invoke(new MergeSortTask(data, new int[data.size()], 0, data.size() - 1, cutoff, probe));
+        probe.release(data.size());
+    }
+    
+    /**
+     * Ordina le due meta' in parallelo e le fonde con {@link MergeTask}. Il buffer ausiliario
+     * e' unico per tutto l'array: ogni task ne usa solo l'intervallo che gli compete.
+     */
+    private static final class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntArray data;
+        private final int[] buffer;
+        private final int left;
+        private final int right;
+        private final int cutoff;
+        private final SortProbe probe;
+        
+        MergeSortTask(IntArray data, int[] buffer, int left, int right, int cutoff, SortProbe probe) {
+            this.data = data;
+            this.buffer = buffer;
+            this.left = left;
+            this.right = right;
+            this.cutoff = cutoff;
+            this.probe = probe;
+        }
+        
+        @Override
+        protected void compute() {
+            probe.range(left, right);
+            if (right - left + 1 <= cutoff) {
+                mergeSort(data, left, right, probe);
+                probe.sync();
+                return;
+            }
+            int mid = (left + right) / 2;
+            probe.enter();
+            probe.sync();
+            invokeAll(new MergeSortTask(data, buffer, left, mid, cutoff, probe),
+                      new MergeSortTask(data, buffer, mid + 1, right, cutoff, probe));
+            probe.leave();
+            probe.range(left, right);
+            for (int i = left; i <= right; i++) {
+                buffer[i] = data.get(i);
+            }
+            new MergeTask(data, buffer, left, mid, mid + 1, right, left, cutoff, probe).compute();
+            probe.sync();
+        }
     }
     
-    private void countingSort(List<Integer> data, SortingVisualizerGUI.SortingCallback callback,
-                              long[] startTimeRef, boolean[] startedFlag, int delay) {
-        if (data.isEmpty()) return;
+    /**
+     * Fusione parallela di buffer[aLow..aHigh] e buffer[bLow..bHigh] in data a partire da destIndex:
+     * l'elemento centrale della sequenza piu' lunga va al suo posto definitivo, trovato con una
+     * ricerca binaria nell'altra, e le due parti rimanenti si fondono in parallelo.
+     */
+    private static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntArray data;
+        private final int[] buffer;
+        private final int aLow;
+        private final int aHigh;
+        private final int bLow;
+        private final int bHigh;
+        private final int destIndex;
+        private final int cutoff;
+        private final SortProbe probe;
         
-        int maxVal = Collections.max(data);
-        int minVal = Collections.min(data);
-        int range = maxVal - minVal + 1;
+        MergeTask(IntArray data, int[] buffer, int aLow, int aHigh, int bLow, int bHigh,
+                  int destIndex, int cutoff, SortProbe probe) {
+            this.data = data;
+            this.buffer = buffer;
+            this.aLow = aLow;
+            this.aHigh = aHigh;
+            this.bLow = bLow;
+            this.bHigh = bHigh;
+            this.destIndex = destIndex;
+            this.cutoff = cutoff;
+            this.probe = probe;
+        }
         
-        int[] count = new int[range];
-        for (int idx = 0; idx < data.size(); idx++) {
-            int num = data.get(idx);
-            if (!startedFlag[0]) {
-                startTimeRef[0] = System.currentTimeMillis();
-                startedFlag[0] = true;
-            }
-            count[num - minVal]++;
-            long elapsedCount = System.currentTimeMillis() - startTimeRef[0];
-            callback.onProgress("Counting Sort", new ArrayList<>(data), Arrays.asList(idx), elapsedCount, false);
-            sleep(delay);
+        @Override
+        protected void compute() {
+            int aLength = aHigh - aLow + 1;
+            int bLength = bHigh - bLow + 1;
+            if (aLength + bLength <= cutoff) {
+                probe.range(destIndex, destIndex + aLength + bLength - 1);
+                mergeSequential();
+                probe.sync();
+                return;
+            }
+            int pivotIndex;
+            int split;
+            int leftLength;
+            if (aLength >= bLength) {
+                pivotIndex = (aLow + aHigh) / 2;
+                split = lowerBound(bLow, bHigh, buffer[pivotIndex], pivotIndex);
+                leftLength = (pivotIndex - aLow) + (split - bLow);
+            } else {
+                pivotIndex = (bLow + bHigh) / 2;
+                split = lowerBound(aLow, aHigh, buffer[pivotIndex], pivotIndex);
+                leftLength = (split - aLow) + (pivotIndex - bLow);
+            }
+            int pivotDest = destIndex + leftLength;
+            data.set(pivotDest, buffer[pivotIndex]);
+            probe.enter();
+            probe.sync();
+            if (aLength >= bLength) {
+                invokeAll(new MergeTask(data, buffer, aLow, pivotIndex - 1, bLow, split - 1, destIndex, cutoff, probe),
+                          new MergeTask(data, buffer, pivotIndex + 1, aHigh, split, bHigh, pivotDest + 1, cutoff, probe));
+            } else {
+                invokeAll(new MergeTask(data, buffer, aLow, split - 1, bLow, pivotIndex - 1, destIndex, cutoff, probe),
+                          new MergeTask(data, buffer, split, aHigh, pivotIndex + 1, bHigh, pivotDest + 1, cutoff, probe));
+            }
+            probe.leave();
+            probe.sync();
         }
         
-        int index = 0;
-        for (int i = 0; i < range; i++) {
-            while (count[i] > 0) {
-                data.set(index, i + minVal);
-                if (!startedFlag[0]) {
-                    startTimeRef[0] = System.currentTimeMillis();
-                    startedFlag[0] = true;
+        /** Primo indice in buffer[low..high] con valore >= key (high + 1 se non esiste). */
+        private int lowerBound(int low, int high, int key, int keyIndex) {
+            int lo = low;
+            int hi = high + 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                probe.compare(mid, keyIndex);
+                if (buffer[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
                 }
-                long elapsedWrite = System.currentTimeMillis() - startTimeRef[0];
-                callback.onProgress("Counting Sort", new ArrayList<>(data), Arrays.asList(index), elapsedWrite, false);
-                sleep(delay);
-                index++;
-                count[i]--;
+            }
+            return lo;
+        }
+        
+        private void mergeSequential() {
+            int i = aLow, j = bLow, k = destIndex;
+            while (i <= aHigh && j <= bHigh) {
+                // i termini stanno nel buffer: in data i e j possono gia' essere stati riscritti
+                // da questo o da un altro task, quindi si segna solo il posto che riceve il minore
+                probe.compare(k, NONE);
+                int value = buffer[i] <= buffer[j] ? buffer[i++] : buffer[j++];
+                data.set(k, value);
+                k++;
+            }
+            while (i <= aHigh) {
+                data.set(k, buffer[i]);
+                i++;
+                k++;
+            }
+            while (j <= bHigh) {
+                data.set(k, buffer[j]);
+                j++;
+                k++;
             }
         }
     }
     
-    private void sleep(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private static void parallelQuickSort(IntArray data, SortProbe probe, ForkJoinPool pool, int cutoff) {
+        if (data.size() < 2) return;
+        pool.invoke(new QuickSortTask(data, 0, data.size() - 1, cutoff, probe));
+    }
+    
+    /**
+     * Partiziona come {@link #quickSort}: la parte piu' piccola va a un altro worker e questo
+     * prosegue con la piu' grande, cosi' l'annidamento dei task resta logaritmico anche con
+     * pivot degeneri. Sotto la soglia prosegue con la versione sequenziale.
+     */
+    private static final class QuickSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntArray data;
+        private final int low;
+        private final int high;
+        private final int cutoff;
+        private final SortProbe probe;
+        
+        QuickSortTask(IntArray data, int low, int high, int cutoff, SortProbe probe) {
+            this.data = data;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+            this.probe = probe;
+        }
+        
+        @Override
+        protected void compute() {
+            int lo = low;
+            int hi = high;
+            List<QuickSortTask> forked = new ArrayList<>();
+            probe.enter();
+            try {
+                while (hi - lo + 1 > cutoff) {
+                    probe.range(lo, hi);
+                    int pi = partition(data, lo, hi, probe);
+                    QuickSortTask smaller;
+                    if (pi - lo < hi - pi) {
+                        smaller = new QuickSortTask(data, lo, pi - 1, cutoff, probe);
+                        lo = pi + 1;
+                    } else {
+                        smaller = new QuickSortTask(data, pi + 1, hi, cutoff, probe);
+                        hi = pi - 1;
+                    }
+                    if (smaller.low < smaller.high) {
+                        probe.sync();
+                        smaller.fork();
+                        forked.add(smaller);
+                    }
+                }
+                if (lo < hi) {
+                    probe.range(lo, hi);
+                    quickSort(data, lo, hi, probe);
+                }
+                probe.sync();
+            } finally {
+                // anche se questo worker esce per un annullamento, i sottotask devono finire prima di lui
+                for (int k = forked.size() - 1; k >= 0; k--) {
+                    forked.get(k).quietlyJoin();
+                }
+                probe.leave();
+            }
+            for (QuickSortTask task : forked) {
+                task.join();
+            }
         }
     }
 }
@@ -0,0 +1,14 @@
+package com.sortingvisualizer;
+
+/**
+ * Notifiche dal motore di ordinamento all'interfaccia.
+ * Non dipende da JavaFX, cosi' il motore si compila e si esegue anche senza GUI.
+ */
+public interface SortingCallback {
+    /**
+     * Nuovi eventi disponibili nel buffer dell'algoritmo.
+     * Viene chiamato dal thread di ordinamento a ogni passo: non deve bloccare.
+     */
+    void onEvents(String algorithm, SortEventBuffer events);
+    void onAllCompleted();
+}
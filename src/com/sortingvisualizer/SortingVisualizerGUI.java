@@ -16,18 +16,24 @@ import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.effect.BlurType;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 public class SortingVisualizerGUI extends Application {
@@ -37,20 +43,131 @@ public class SortingVisualizerGUI extends Application {
     private Map<String, Label> statusLabels;
     private Map<String, Label> timeLabels;
     private Map<String, Long> finalTimes;
+    private Map<String, Label> benchmarkLabels;
+    private Map<String, Long> benchmarkTimes;
+    private Map<String, LocalState> localStates;
+    private Map<String, Mailbox> mailboxes;
+    private Map<String, Label> skipLabels;
+    private Map<String, ComboBox<String>> backpressureSelectors;
+    private Map<String, Label> counterLabels;
+    private Map<String, Label> memoryLabels;
+    private AnimationTimer frameTimer;
+    private AnimationTimer replayTimer;
+    private AnimationTimer externalTimer;
+    private AnimationTimer streamingTimer;
+    private AnimationTimer blinkTimer;
+    private AnimationTimer perfTimer;
+    private final PerfMonitor perfMonitor = new PerfMonitor();
+    private Label perfOverlay;
+    private ParticleLayer particleLayer;
     private Button startButton;
     private Button generateButton;
+    private Button pauseButton;
+    private Button stepButton;
+    private Button cancelButton;
+    private Button exportButton;
+    private Button replayButton;
+    private Slider replaySlider;
+    private ComboBox<Integer> replaySpeedSelector;
+    private Label instructions;
+    private SortRun currentRun;
     private ComboBox<Integer> sizeSelector;
+    private ComboBox<Integer> cutoffSelector;
+    private ComboBox<String> pacingSelector;
+    private ComboBox<String> rangeSelector;
+    private ComboBox<String> distributionSelector;
+    private TextField seedField;
+    private Label datasetLabel;
     private CheckBox blinkCheckBox;
+    private CheckBox recordCheckBox;
+    private CheckBox perfCheckBox;
+    private Button perfDumpButton;
+    private ComboBox<String> rendererSelector;
+    private Label renderTimeLabel;
     private GridPane chartsGrid;
+    private ComboBox<Integer> externalSizeSelector;
+    private Button externalGenerateButton;
+    private Button externalSortButton;
+    private Button externalCancelButton;
+    private Label externalStatusLabel;
+    private Label externalRunsLabel;
+    private Label externalPassLabel;
+    private Label externalBytesLabel;
+    private Label externalRateLabel;
+    private ExternalMergeSort externalSort;
+    private ComboBox<Integer> streamingCountSelector;
+    private ComboBox<String> streamingRateSelector;
+    private Button streamingButton;
+    private Label streamingProgressLabel;
+    private final Map<String, Label> streamingLabels = new LinkedHashMap<>();
+    private StreamingRun streamingRun;
     private StackPane root;
     
     private boolean isSortedState = false;
+    private boolean recording;
     private boolean blinkBars = false; // se true, le barre lampeggiano
     
+    // disegna anche i riassunti per colonne, qualunque sia il renderer scelto per le barre
+    private final CanvasBarRenderer canvasRenderer = new CanvasBarRenderer();
+    private final List<BarRenderer> renderers = Arrays.asList(new NodeBarRenderer(), canvasRenderer);
+    private BarRenderer renderer = renderers.get(0);
+    private double renderNanosAverage;
+    
+    // tracce dell'ultima esecuzione animata e relativi cursori, per rivederla senza rieseguirla
+    private final Map<String, SortTrace> replayTraces = new LinkedHashMap<>();
+    private final Map<String, SortTrace.Reader> replayReaders = new LinkedHashMap<>();
+    private SortRun replayRun;
+    private long replayLength;
+    private long replayPosition;
+    private boolean replaying;
+    private boolean movingReplaySlider;
+    private long lastRenderLabelUpdate;
+    
+    // oltre questa dimensione si misura soltanto: anche a un frame di passi per volta,
+    // animare miliardi di passi richiederebbe giorni
+    private static final int ANIMATION_LIMIT = 10_000;
+    // fin qui si puo' registrare la traccia a piena velocita' e rivederla dopo
+    private static final int RECORD_LIMIT = 50_000;
+    // barre mostrate al massimo per pannello, circa una per pixel: oltre si disegnano colonne
+    private static final int PREVIEW_BARS = 330;
+    
+    private static final Map<String, int[]> VALUE_RANGES = new LinkedHashMap<>();
+    static {
+        VALUE_RANGES.put("1 - 40", new int[] { SortingBusinessLogic.DEFAULT_MIN_VALUE, SortingBusinessLogic.DEFAULT_MAX_VALUE });
+        VALUE_RANGES.put("1 - 1.000", new int[] { 1, 1_000 });
+        VALUE_RANGES.put("1 - 1.000.000", new int[] { 1, 1_000_000 });
+        VALUE_RANGES.put("0 - 2^31-1", new int[] { 0, Integer.MAX_VALUE });
+        VALUE_RANGES.put("int completo", new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE });
+    }
+    
+    // cadenze dell'animazione: una durata obiettivo o un numero fisso di passi al secondo
+    private static final Map<String, Double> TARGET_DURATIONS = new LinkedHashMap<>();
+    private static final Map<String, Double> STEP_RATES = new LinkedHashMap<>();
+    static {
+        TARGET_DURATIONS.put("⏱️ 10 s", 10.0);
+        TARGET_DURATIONS.put("⏱️ 30 s", SortingBusinessLogic.DEFAULT_TARGET_SECONDS);
+        TARGET_DURATIONS.put("⏱️ 2 min", 120.0);
+        STEP_RATES.put("10 passi/s", 10.0);
+        STEP_RATES.put("100 passi/s", 100.0);
+        STEP_RATES.put("1.000 passi/s", 1_000.0);
+        STEP_RATES.put("100.000 passi/s", 100_000.0);
+        STEP_RATES.put("10.000.000 passi/s", 10_000_000.0);
+    }
+    
+    // frequenze di arrivo della modalita' streaming; zero = tutti i valori subito
+    private static final Map<String, Double> STREAM_RATES = new LinkedHashMap<>();
+    static {
+        STREAM_RATES.put("10.000 valori/s", 10_000.0);
+        STREAM_RATES.put("100.000 valori/s", 100_000.0);
+        STREAM_RATES.put("1.000.000 valori/s", 1_000_000.0);
+        STREAM_RATES.put("⚡ Senza limite", 0.0);
+    }
+    
     private final Color[] algorithmColors = {
         Color.web("#4CAF50"), Color.web("#2196F3"), Color.web("#FF9800"),
         Color.web("#9C27B0"), Color.web("#E91E63"), Color.web("#009688"),
-        Color.web("#FFEB3B"), Color.web("#3F51B5"), Color.web("#607D8B")
+        Color.web("#FFEB3B"), Color.web("#3F51B5"), Color.web("#607D8B"),
+        Color.web("#FF5722"), Color.web("#00BCD4"), Color.web("#CDDC39")
     };
     
     @Override
@@ -60,6 +177,58 @@ public class SortingVisualizerGUI extends Application {
         statusLabels = new HashMap<>();
         timeLabels = new HashMap<>();
         finalTimes = new HashMap<>();
+        benchmarkLabels = new HashMap<>();
+        benchmarkTimes = new HashMap<>();
+        localStates = new HashMap<>();
+        mailboxes = new HashMap<>();
+        skipLabels = new HashMap<>();
+        backpressureSelectors = new HashMap<>();
+        counterLabels = new HashMap<>();
+        memoryLabels = new HashMap<>();
+        frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drainMailboxes();
+                if (recording) {
+                    showRecordingProgress();
+                }
+            }
+        };
+        replayTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                advanceReplay();
+            }
+        };
+        externalTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                showExternalProgress();
+            }
+        };
+        streamingTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                showStreamingProgress();
+            }
+        };
+        blinkTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                blink(now);
+            }
+        };
+        // sempre attivo, anche con l'overlay nascosto: l'anello dei campioni resta da salvare
+        perfTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (perfMonitor.pulse(now)) {
+                    showPerfSample(now);
+                }
+            }
+        };
+        // prima dei pannelli di controllo, che ne segnalano gia' lo stato
+        particleLayer = new ParticleLayer();
         
         root = new StackPane();
         root.setCache(true);
@@ -76,7 +245,9 @@ public class SortingVisualizerGUI extends Application {
         Label mainTitle = new Label("🌌 Sorting Visualizer");
         mainTitle.getStyleClass().add("main-title");
         
-        HBox controlPanel = createControlPanel();
+        VBox controlPanel = createControlPanel();
+        HBox externalPanel = createExternalSortPanel();
+        HBox streamingPanel = createStreamingPanel();
         
         chartsGrid = createChartsGrid();
         ScrollPane scrollPane = new ScrollPane(chartsGrid);
@@ -86,11 +257,20 @@ public class SortingVisualizerGUI extends Application {
         VBox.setVgrow(scrollPane, Priority.ALWAYS);
         scrollPane.getStyleClass().add("transparent-scroll");
         
-        mainContainer.getChildren().addAll(mainTitle, controlPanel, scrollPane);
+        mainContainer.getChildren().addAll(mainTitle, controlPanel, externalPanel, streamingPanel, scrollPane);
         root.getChildren().add(mainContainer);
         
-        Pane particlesLayer = createParticleLayer();
-        root.getChildren().add(particlesLayer);
+        root.getChildren().add(particleLayer);
+        particleLayer.start();
+        
+        perfOverlay = new Label();
+        perfOverlay.getStyleClass().add("perf-overlay");
+        perfOverlay.setMouseTransparent(true);
+        perfOverlay.setVisible(false);
+        StackPane.setAlignment(perfOverlay, Pos.TOP_RIGHT);
+        StackPane.setMargin(perfOverlay, new Insets(20));
+        root.getChildren().add(perfOverlay);
+        perfTimer.start();
         
         Scene scene = new Scene(root, 1400, 900);
         scene.setFill(Color.BLACK);
@@ -151,37 +331,9 @@ public class SortingVisualizerGUI extends Application {
         return new Pane(bg);
     }
     
-    private Pane createParticleLayer() {
-        Pane layer = new Pane();
-        layer.setMouseTransparent(true);
-        layer.setPrefSize(Double.MAX_VALUE, Double.MAX_VALUE);
-        
-        Timeline particleTimeline = new Timeline(new KeyFrame(Duration.seconds(0.3), e -> {
-            Circle c = new Circle(2 + Math.random() * 3, Color.web("rgba(255,255,255,0.3)"));
-            c.setMouseTransparent(true);
-            c.setTranslateX(Math.random() * root.getWidth());
-            c.setTranslateY(root.getHeight() + 10);
-            layer.getChildren().add(c);
-            
-            TranslateTransition tt = new TranslateTransition(Duration.seconds(6 + Math.random() * 4), c);
-            tt.setByY(-root.getHeight() - 20);
-            
-            FadeTransition ft = new FadeTransition(Duration.seconds(6 + Math.random() * 4), c);
-            ft.setFromValue(0.7);
-            ft.setToValue(0.0);
-            
-            ParallelTransition pt = new ParallelTransition(tt, ft);
-            pt.setOnFinished(ev -> layer.getChildren().remove(c));
-            pt.play();
-        }));
-        particleTimeline.setCycleCount(Animation.INDEFINITE);
-        particleTimeline.play();
-        
-        return layer;
-    }
-    
-    private HBox createControlPanel() {
-        HBox panel = new HBox(20);
+    /** Tre righe: esecuzione e riproduzione, dataset, animazione e misure. In una sola non ci stanno. */
+    private VBox createControlPanel() {
+        VBox panel = new VBox(10);
         panel.setAlignment(Pos.CENTER);
         panel.getStyleClass().add("control-panel");
         
@@ -195,11 +347,54 @@ public class SortingVisualizerGUI extends Application {
         applyButtonAnimations(generateButton, false);
         generateButton.setOnAction(e -> generateNewDataset());
         
+        pauseButton = new Button("⏸️ Pausa");
+        pauseButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(pauseButton, false);
+        pauseButton.setOnAction(e -> togglePause());
+        
+        stepButton = new Button("⏭️ Passo");
+        stepButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(stepButton, false);
+        stepButton.setOnAction(e -> currentRun.step());
+        
+        cancelButton = new Button("⏹️ Annulla");
+        cancelButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(cancelButton, false);
+        cancelButton.setOnAction(e -> cancelSorting());
+        
+        exportButton = new Button("💾 Esporta metriche");
+        exportButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(exportButton, false);
+        exportButton.setOnAction(e -> exportMetrics());
+        
+        replayButton = new Button("⏪ Rivedi");
+        replayButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(replayButton, false);
+        replayButton.setOnAction(e -> toggleReplay());
+        
+        // trascinando il cursore si salta a qualunque passo, anche all'indietro
+        replaySlider = new Slider(0, 1, 0);
+        replaySlider.setPrefWidth(220);
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (movingReplaySlider) return;
+            stopReplay();
+            showReplay(newVal.longValue());
+        });
+        
+        Label replaySpeedLabel = new Label("Passi/frame:");
+        replaySpeedLabel.getStyleClass().add("instructions");
+        
+        replaySpeedSelector = new ComboBox<>();
+        replaySpeedSelector.getItems().addAll(1, 10, 100, 1_000, 10_000, 100_000);
+        replaySpeedSelector.setValue(10);
+        applyComboBoxAnimations(replaySpeedSelector);
+        
         Label sizeLabel = new Label("Numero elementi:");
         sizeLabel.getStyleClass().add("instructions");
         
         sizeSelector = new ComboBox<>();
-        sizeSelector.getItems().addAll(12, 20, 50, 100);
+        sizeSelector.getItems().addAll(12, 20, 50, 100, 1_000, ANIMATION_LIMIT, RECORD_LIMIT,
+                                       100_000, 1_000_000, 10_000_000, 50_000_000);
         sizeSelector.setValue(12);
         applyComboBoxAnimations(sizeSelector);
         sizeSelector.setOnAction(e -> {
@@ -210,13 +405,225 @@ public class SortingVisualizerGUI extends Application {
         blinkCheckBox = new CheckBox("Abilita lampeggiamento continuo");
         blinkCheckBox.getStyleClass().add("check-box");
         blinkCheckBox.setSelected(false);
-        blinkCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> blinkBars = newVal);
+        blinkCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> setBlinking(newVal));
         applyCheckBoxAnimations(blinkCheckBox);
         
-        Label instructions = new Label("Seleziona e avvia per guardare la magia!");
+        recordCheckBox = new CheckBox("⏺️ Registra traccia oltre " + ANIMATION_LIMIT);
+        recordCheckBox.getStyleClass().add("check-box");
+        recordCheckBox.setTooltip(new Tooltip("Fino a " + RECORD_LIMIT + " elementi gli algoritmi girano a piena velocita' "
+            + "registrando la traccia su file temporanei, da rivedere a fine esecuzione. "
+            + "Gli algoritmi quadratici producono n^2 eventi: a 50.000 elementi servono decine di GB su disco."));
+        applyCheckBoxAnimations(recordCheckBox);
+        
+        perfCheckBox = new CheckBox("📊 Overlay prestazioni");
+        perfCheckBox.getStyleClass().add("check-box");
+        perfCheckBox.setSelected(false);
+        perfCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> perfOverlay.setVisible(newVal));
+        applyCheckBoxAnimations(perfCheckBox);
+        
+        perfDumpButton = new Button("💾 CSV prestazioni");
+        perfDumpButton.getStyleClass().add("generate-button");
+        perfDumpButton.setTooltip(new Tooltip("Salva un campione al secondo degli ultimi "
+            + PerfMonitor.HISTORY / 60 + " minuti: FPS, pulse, disegno, eventi in coda, passi, heap e GC."));
+        applyButtonAnimations(perfDumpButton, false);
+        perfDumpButton.setOnAction(e -> exportPerfSamples());
+        
+        Label rendererLabel = new Label("Renderer:");
+        rendererLabel.getStyleClass().add("instructions");
+        
+        rendererSelector = new ComboBox<>();
+        for (BarRenderer r : renderers) {
+            rendererSelector.getItems().add(r.getName());
+        }
+        rendererSelector.setValue(renderer.getName());
+        applyComboBoxAnimations(rendererSelector);
+        rendererSelector.setOnAction(e -> {
+            for (BarRenderer r : renderers) {
+                if (r.getName().equals(rendererSelector.getValue())) {
+                    switchRenderer(r);
+                }
+            }
+        });
+        
+        Label rangeLabel = new Label("Valori:");
+        rangeLabel.getStyleClass().add("instructions");
+        
+        rangeSelector = new ComboBox<>();
+        rangeSelector.getItems().addAll(VALUE_RANGES.keySet());
+        rangeSelector.setValue(rangeSelector.getItems().get(0));
+        applyComboBoxAnimations(rangeSelector);
+        rangeSelector.setOnAction(e -> {
+            int[] range = VALUE_RANGES.get(rangeSelector.getValue());
+            businessLogic.setValueRange(range[0], range[1]);
+            generateNewDataset();
+        });
+        
+        Label distributionLabel = new Label("Distribuzione:");
+        distributionLabel.getStyleClass().add("instructions");
+        
+        distributionSelector = new ComboBox<>();
+        for (Distribution d : Distribution.values()) {
+            distributionSelector.getItems().add(d.getLabel());
+        }
+        distributionSelector.setValue(Distribution.RANDOM.getLabel());
+        applyComboBoxAnimations(distributionSelector);
+        distributionSelector.setOnAction(e -> {
+            for (Distribution d : Distribution.values()) {
+                if (d.getLabel().equals(distributionSelector.getValue())) {
+                    businessLogic.setDistribution(d);
+                }
+            }
+            generateNewDataset();
+        });
+        
+        // il seme del dataset corrente; scrivendone uno e premendo Invio si rigenera lo stesso dataset
+        Label seedLabel = new Label("Seme:");
+        seedLabel.getStyleClass().add("instructions");
+        
+        seedField = new TextField();
+        seedField.setPrefColumnCount(12);
+        seedField.setOnAction(e -> generateDatasetFromSeed());
+        
+        datasetLabel = new Label();
+        datasetLabel.getStyleClass().add("instructions");
+        
+        Label pacingLabel = new Label("Cadenza:");
+        pacingLabel.getStyleClass().add("instructions");
+        
+        pacingSelector = new ComboBox<>();
+        pacingSelector.getItems().addAll(TARGET_DURATIONS.keySet());
+        pacingSelector.getItems().addAll(STEP_RATES.keySet());
+        pacingSelector.setValue("⏱️ 30 s");
+        applyComboBoxAnimations(pacingSelector);
+        pacingSelector.setOnAction(e -> {
+            String choice = pacingSelector.getValue();
+            if (TARGET_DURATIONS.containsKey(choice)) {
+                businessLogic.setTargetDuration(TARGET_DURATIONS.get(choice));
+            } else {
+                businessLogic.setStepsPerSecond(STEP_RATES.get(choice));
+            }
+        });
+        
+        Label cutoffLabel = new Label("Soglia parallela:");
+        cutoffLabel.getStyleClass().add("instructions");
+        
+        // con le dimensioni dell'animazione la soglia del benchmark non dividerebbe mai il lavoro;
+        // il benchmark resta sulla soglia predefinita
+        cutoffSelector = new ComboBox<>();
+        cutoffSelector.getItems().addAll(2, 4, 8, 16, 32);
+        cutoffSelector.setValue(4);
+        businessLogic.setParallelCutoff(cutoffSelector.getValue());
+        applyComboBoxAnimations(cutoffSelector);
+        cutoffSelector.setOnAction(e -> businessLogic.setParallelCutoff(cutoffSelector.getValue()));
+        
+        renderTimeLabel = new Label("🖌️ Render: -");
+        renderTimeLabel.getStyleClass().add("instructions");
+        
+        instructions = new Label("Seleziona e avvia per guardare la magia!");
         instructions.getStyleClass().add("instructions");
         
-        panel.getChildren().addAll(startButton, generateButton, sizeLabel, sizeSelector, blinkCheckBox, instructions);
+        setRunning(false);
+        HBox runRow = new HBox(20, startButton, generateButton, pauseButton, stepButton, cancelButton, exportButton,
+                               replayButton, replaySlider, replaySpeedLabel, replaySpeedSelector);
+        HBox datasetRow = new HBox(20, sizeLabel, sizeSelector, rangeLabel, rangeSelector, distributionLabel,
+                                   distributionSelector, seedLabel, seedField, datasetLabel, instructions);
+        HBox viewRow = new HBox(20, pacingLabel, pacingSelector, cutoffLabel, cutoffSelector, blinkCheckBox, recordCheckBox,
+                                rendererLabel, rendererSelector, renderTimeLabel, perfCheckBox, perfDumpButton);
+        for (HBox row : new HBox[] {runRow, datasetRow, viewRow}) {
+            row.setAlignment(Pos.CENTER);
+        }
+        panel.getChildren().addAll(runRow, datasetRow, viewRow);
+        return panel;
+    }
+    
+    /**
+     * Pannello dell'ordinamento esterno: scrive un file di int grande a piacere con il seme,
+     * l'intervallo e la distribuzione correnti, lo ordina su disco e ne mostra l'avanzamento.
+     */
+    private HBox createExternalSortPanel() {
+        HBox panel = new HBox(20);
+        panel.setAlignment(Pos.CENTER);
+        panel.getStyleClass().add("control-panel");
+        
+        Label title = new Label("💽 Ordinamento esterno:");
+        title.getStyleClass().add("instructions");
+        
+        externalSizeSelector = new ComboBox<>();
+        externalSizeSelector.getItems().addAll(10_000_000, 100_000_000, 250_000_000, 500_000_000);
+        externalSizeSelector.setValue(100_000_000);
+        applyComboBoxAnimations(externalSizeSelector);
+        
+        externalGenerateButton = new Button("📝 Genera file");
+        externalGenerateButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(externalGenerateButton, false);
+        externalGenerateButton.setOnAction(e -> writeExternalFile());
+        
+        externalSortButton = new Button("💽 Ordina file");
+        externalSortButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(externalSortButton, false);
+        externalSortButton.setOnAction(e -> startExternalSort());
+        
+        externalCancelButton = new Button("⏹️ Interrompi");
+        externalCancelButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(externalCancelButton, false);
+        externalCancelButton.setOnAction(e -> externalSort.cancel());
+        
+        externalStatusLabel = new Label("File di int big-endian, piu' grandi dello heap");
+        externalRunsLabel = new Label();
+        externalPassLabel = new Label();
+        externalBytesLabel = new Label();
+        externalRateLabel = new Label();
+        for (Label label : Arrays.asList(externalStatusLabel, externalRunsLabel, externalPassLabel,
+                                         externalBytesLabel, externalRateLabel)) {
+            label.getStyleClass().add("instructions");
+        }
+        
+        setExternalRunning(false);
+        panel.getChildren().addAll(title, externalSizeSelector, externalGenerateButton, externalSortButton,
+                                   externalCancelButton, externalStatusLabel, externalRunsLabel, externalPassLabel,
+                                   externalBytesLabel, externalRateLabel);
+        return panel;
+    }
+    
+    /**
+     * Pannello della modalita' streaming: i valori arrivano alla frequenza scelta e ogni strategia
+     * li tiene ordinati; per ciascuna si mostrano i percentili della latenza di inserimento.
+     */
+    private HBox createStreamingPanel() {
+        HBox panel = new HBox(20);
+        panel.setAlignment(Pos.CENTER);
+        panel.getStyleClass().add("control-panel");
+        
+        Label title = new Label("🌊 Streaming:");
+        title.getStyleClass().add("instructions");
+        
+        streamingCountSelector = new ComboBox<>();
+        streamingCountSelector.getItems().addAll(100_000, 1_000_000, 10_000_000);
+        streamingCountSelector.setValue(1_000_000);
+        applyComboBoxAnimations(streamingCountSelector);
+        
+        streamingRateSelector = new ComboBox<>();
+        streamingRateSelector.getItems().addAll(STREAM_RATES.keySet());
+        streamingRateSelector.setValue("100.000 valori/s");
+        applyComboBoxAnimations(streamingRateSelector);
+        
+        streamingButton = new Button("🌊 Avvia streaming");
+        streamingButton.getStyleClass().add("generate-button");
+        applyButtonAnimations(streamingButton, false);
+        streamingButton.setOnAction(e -> toggleStreaming());
+        
+        streamingProgressLabel = new Label("Latenza per inserimento: p50 · p99 · p99.9");
+        streamingProgressLabel.getStyleClass().add("instructions");
+        VBox resultsBox = new VBox(2);
+        for (String strategy : SortingBusinessLogic.streamingStrategies()) {
+            Label label = new Label(strategy);
+            label.getStyleClass().add("instructions");
+            streamingLabels.put(strategy, label);
+            resultsBox.getChildren().add(label);
+        }
+        
+        panel.getChildren().addAll(title, streamingCountSelector, streamingRateSelector, streamingButton,
+                                   streamingProgressLabel, resultsBox);
         return panel;
     }
     
@@ -229,8 +636,10 @@ public class SortingVisualizerGUI extends Application {
         String[] algorithms = {
             "Bubble Sort", "Selection Sort", "Insertion Sort",
             "Quick Sort", "Merge Sort", "Heap Sort",
-            "Shell Sort", "Binary Insertion Sort", "Counting Sort"
+            "Shell Sort", "Binary Insertion Sort", "Counting Sort",
+            "Parallel Merge Sort", "Parallel Quick Sort", "Radix Sort"
         };
+        int workers = SortingBusinessLogic.parallelism();
         String[] descriptions = {
             "Confronta elementi adiacenti e li scambia se necessario",
             "Trova il minimo e lo posiziona all'inizio",
@@ -240,7 +649,10 @@ public class SortingVisualizerGUI extends Application {
             "Costruisce un heap e lo estrae iterativamente",
             "Utilizza gap decrescenti per confronti distanziati",
             "Inserisce con ricerca binaria per trovare la posizione giusta",
-            "Conta le occorrenze e ricostruisce l'array"
+            "Conta le occorrenze in parallelo su " + workers + " worker e ricostruisce l'array",
+            "Ordina le meta' e le fonde in parallelo su " + workers + " worker",
+            "Partiziona e ordina le parti in parallelo su " + workers + " worker",
+            "Distribuisce per cifre da 8 bit, contandole in parallelo su " + workers + " worker"
         };
         
         int row = 0, col = 0;
@@ -278,8 +690,44 @@ public class SortingVisualizerGUI extends Application {
         time.getStyleClass().add("time-label");
         timeLabels.put(name, time);
         
+        Label benchmark = new Label("⚡ Reale: -");
+        benchmark.getStyleClass().add("benchmark-label");
+        benchmarkLabels.put(name, benchmark);
+        
+        Label skipped = new Label("⏭️ Passi saltati: 0");
+        skipped.getStyleClass().add("time-label");
+        skipLabels.put(name, skipped);
+        
+        Label counters = new Label(formatCounters(new SortCounters()));
+        counters.getStyleClass().add("time-label");
+        counterLabels.put(name, counters);
+        
+        Label memory = new Label(formatMemory(new SortCounters()));
+        memory.getStyleClass().add("time-label");
+        memoryLabels.put(name, memory);
+        
+        // cosa fa l'algoritmo quando l'interfaccia resta indietro e il suo buffer e' pieno
+        ComboBox<String> backpressure = new ComboBox<>();
+        for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+            backpressure.getItems().add(policy.getLabel());
+        }
+        backpressure.setValue(businessLogic.getBackpressure(name).getLabel());
+        backpressure.setTooltip(new Tooltip("Buffer pieno (" + SortEventBuffer.CAPACITY + " eventi): "
+            + "l'algoritmo aspetta l'interfaccia, oppure si scartano eventi e il pannello riparte da una copia dell'array."));
+        applyComboBoxAnimations(backpressure);
+        backpressure.setOnAction(e -> {
+            for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+                if (policy.getLabel().equals(backpressure.getValue())) {
+                    businessLogic.setBackpressure(name, policy);
+                }
+            }
+        });
+        backpressureSelectors.put(name, backpressure);
+        
         Pane visualPane = createVisualizationPane();
         visualPanes.put(name, visualPane);
+        localStates.put(name, new LocalState());
+        mailboxes.put(name, new Mailbox());
         
         // Hover sul container
         ScaleTransition hoverEnlarge = new ScaleTransition(Duration.millis(200), container);
@@ -292,7 +740,8 @@ public class SortingVisualizerGUI extends Application {
         container.setOnMouseEntered(e -> hoverEnlarge.playFromStart());
         container.setOnMouseExited(e -> hoverShrink.playFromStart());
         
-        container.getChildren().addAll(title, description, status, time, visualPane);
+        container.getChildren().addAll(title, description, status, time, benchmark, skipped, counters, memory,
+                                       backpressure, visualPane);
         return container;
     }
     
@@ -307,144 +756,669 @@ public class SortingVisualizerGUI extends Application {
         if (isSortedState) {
             generateNewDataset();
         }
-        sizeSelector.setDisable(true);
-        startButton.setDisable(true);
-        generateButton.setDisable(true);
+        clearReplay();
+        setRunning(true);
+        boolean animated = sizeSelector.getValue() <= ANIMATION_LIMIT;
+        boolean recorded = !animated && sizeSelector.getValue() <= RECORD_LIMIT && recordCheckBox.isSelected();
         
-        Platform.runLater(() -> {
-            for (String alg : statusLabels.keySet()) {
-                statusLabels.get(alg).setText("⏳ In coda");
-                statusLabels.get(alg).getStyleClass().remove("completed");
-                timeLabels.get(alg).setText("⏱️ Tempo: 0ms");
-                finalTimes.remove(alg);
+        // gli eventi indirizzano l'array intero; senza eventi basta il riassunto condiviso
+        resetLocalStates(animated || recorded);
+        for (String alg : statusLabels.keySet()) {
+            statusLabels.get(alg).setText(animated ? "⏳ In coda" : recorded ? "⏺️ Registrazione dopo la misura" : "⚡ Solo misurazione");
+            statusLabels.get(alg).getStyleClass().remove("completed");
+            timeLabels.get(alg).setText("⏱️ Tempo: 0ms");
+            finalTimes.remove(alg);
+            benchmarkLabels.get(alg).setText("⚡ Reale: misurazione...");
+            skipLabels.get(alg).setText("⏭️ Passi saltati: 0");
+            counterLabels.get(alg).setText(formatCounters(localStates.get(alg).counters));
+            memoryLabels.get(alg).setText(formatMemory(localStates.get(alg).counters));
+            mailboxes.get(alg).take();
+        }
+        benchmarkTimes.clear();
+        
+        // tempi senza pause ne' eventi, mostrati accanto a quelli dell'animazione
+        businessLogic.startBenchmark().whenComplete((results, error) -> Platform.runLater(() -> {
+            if (results != null) {
+                benchmarkTimes.putAll(results);
             }
-        });
+            for (String alg : benchmarkLabels.keySet()) {
+                Long nanos = results != null ? results.get(alg) : null;
+                if (error != null) {
+                    benchmarkLabels.get(alg).setText("⚡ Reale: errore (" + error.getCause() + ")");
+                    continue;
+                }
+                if (nanos == null) {
+                    benchmarkLabels.get(alg).setText("⚡ Reale: saltato (quadratico)");
+                    continue;
+                }
+                String text = formatBenchmarkTime(nanos);
+                Long sequential = results.get(sequentialCounterpart(alg));
+                if (sequential != null) {
+                    text += String.format(" (x%.2f)", (double) sequential / nanos);
+                }
+                benchmarkLabels.get(alg).setText(text);
+            }
+            if (recorded) {
+                // la registrazione parte dopo, per non falsare la misura contendendole i core
+                pauseButton.setDisable(false);
+                cancelButton.setDisable(false);
+                startRun(true);
+            } else if (!animated) {
+                for (Label status : statusLabels.values()) {
+                    status.setText("✅ Misurato");
+                }
+                setRunning(false);
+            }
+        }));
         
-        businessLogic.startSorting(new SortingCallback() {
+        if (!animated) {
+            // il benchmark non si puo' mettere in pausa ne' annullare
+            pauseButton.setDisable(true);
+            cancelButton.setDisable(true);
+            return;
+        }
+        instructions.setText(String.format("🎬 %,.0f passi/s per algoritmo (%,.0f per frame)",
+            businessLogic.getStepsPerSecond(), businessLogic.getStepsPerSecond() / Pacer.FRAME_RATE));
+        startRun(false);
+    }
+    
+    private void startRun(boolean record) {
+        recording = record;
+        frameTimer.start();
+        SortingCallback callback = new SortingCallback() {
             @Override
-            public void onProgress(String algorithm, List<Integer> currentState, List<Integer> activeIndices, long elapsedTime, boolean isCompleted) {
-                Platform.runLater(() -> {
-                    if ("⏳ In coda".equals(statusLabels.get(algorithm).getText())) {
-                        statusLabels.get(algorithm).setText("🔄 In esecuzione...");
-                    }
-                    updateVisualization(algorithm, currentState, activeIndices, isCompleted);
-                    timeLabels.get(algorithm).setText("⏱️ Tempo: " + elapsedTime + "ms");
-                    if (isCompleted) {
-                        statusLabels.get(algorithm).setText("✅ Completato!");
-                        statusLabels.get(algorithm).getStyleClass().add("completed");
-                        finalTimes.put(algorithm, elapsedTime);
-                    }
-                });
+            public void onEvents(String algorithm, SortEventBuffer events) {
+                // nessun runLater per passo: il timer di frame raccoglie la casella una volta per frame
+                mailboxes.get(algorithm).publish(events);
             }
             
             @Override
             public void onAllCompleted() {
                 Platform.runLater(() -> {
-                    sizeSelector.setDisable(false);
-                    startButton.setDisable(false);
-                    generateButton.setDisable(false);
+                    frameTimer.stop();
+                    recording = false;
+                    drainMailboxes();
+                    loadReplay(currentRun);
+                    setRunning(false);
                     isSortedState = true;
                     animateAndReorder();
                 });
             }
-        });
+        };
+        currentRun = record ? businessLogic.startRecording(callback) : businessLogic.startSorting(callback);
+    }
+    
+    /** In registrazione non arrivano eventi da mostrare: si mostra quanti ne sono stati registrati. */
+    private void showRecordingProgress() {
+        for (Map.Entry<String, SortTrace> entry : currentRun.traces().entrySet()) {
+            if (!finalTimes.containsKey(entry.getKey())) {
+                statusLabels.get(entry.getKey()).setText(String.format("⏺️ Registrati %,d passi", entry.getValue().progress()));
+            }
+        }
+    }
+    
+    /**
+     * Durante un'esecuzione si possono usare solo pausa, passo e annulla;
+     * il passo singolo ha senso solo in pausa.
+     */
+    private void setRunning(boolean running) {
+        sizeSelector.setDisable(running);
+        rangeSelector.setDisable(running);
+        distributionSelector.setDisable(running);
+        seedField.setDisable(running);
+        cutoffSelector.setDisable(running);
+        pacingSelector.setDisable(running);
+        recordCheckBox.setDisable(running);
+        startButton.setDisable(running);
+        generateButton.setDisable(running);
+        replayButton.setDisable(running || replayTraces.isEmpty());
+        replaySlider.setDisable(running || replayTraces.isEmpty());
+        pauseButton.setDisable(!running);
+        pauseButton.setText("⏸️ Pausa");
+        stepButton.setDisable(true);
+        cancelButton.setDisable(!running);
+        for (ComboBox<String> backpressure : backpressureSelectors.values()) {
+            backpressure.setDisable(running);
+        }
+        particleLayer.setBusy(running);
+    }
+    
+    private void togglePause() {
+        if (currentRun.isPaused()) {
+            currentRun.resume();
+            pauseButton.setText("⏸️ Pausa");
+            stepButton.setDisable(true);
+        } else {
+            currentRun.pause();
+            pauseButton.setText("▶️ Riprendi");
+            stepButton.setDisable(false);
+        }
+    }
+    
+    /**
+     * Annulla l'esecuzione corrente. I comandi tornano attivi solo quando tutti i thread
+     * degli algoritmi sono usciti, cosi' una nuova esecuzione parte su un executor libero.
+     */
+    private void cancelSorting() {
+        SortRun run = currentRun;
+        pauseButton.setDisable(true);
+        stepButton.setDisable(true);
+        cancelButton.setDisable(true);
+        run.cancel();
+        run.completion().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (currentRun != run) return;
+            frameTimer.stop();
+            recording = false;
+            drainMailboxes();
+            for (String alg : statusLabels.keySet()) {
+                if (!finalTimes.containsKey(alg)) {
+                    statusLabels.get(alg).setText("⏹️ Annullato");
+                }
+            }
+            loadReplay(run);
+            setRunning(false);
+        }));
+    }
+    
+    /**
+     * Chiamato una volta per frame: raccoglie le caselle di tutti gli algoritmi
+     * e ridisegna solo quelli che hanno prodotto eventi.
+     */
+    private void drainMailboxes() {
+        long frameStart = System.nanoTime();
+        boolean rendered = false;
+        for (Map.Entry<String, Mailbox> entry : mailboxes.entrySet()) {
+            SortEventBuffer events = entry.getValue().take();
+            if (events != null) {
+                rendered |= applyEvents(entry.getKey(), events);
+            }
+        }
+        if (rendered) {
+            trackRenderTime(System.nanoTime() - frameStart);
+        }
+    }
+    
+    /**
+     * Media mobile del tempo speso per frame nel disegno dei pannelli, per confrontare
+     * i renderer. L'etichetta si aggiorna al massimo quattro volte al secondo.
+     */
+    private void trackRenderTime(long frameNanos) {
+        renderNanosAverage = renderNanosAverage == 0 ? frameNanos : renderNanosAverage * 0.9 + frameNanos * 0.1;
+        long now = System.nanoTime();
+        if (now - lastRenderLabelUpdate > 250_000_000L) {
+            lastRenderLabelUpdate = now;
+            renderTimeLabel.setText(String.format("🖌️ Render: %.2f ms/frame", renderNanosAverage / 1_000_000.0));
+        }
+    }
+    
+    /**
+     * Applica alla copia locale dell'algoritmo i delta accumulati nel buffer
+     * e ridisegna una sola volta: gli stati intermedi del frame non vengono mostrati.
+     */
+    private boolean applyEvents(String algorithm, SortEventBuffer events) {
+        LocalState state = localStates.get(algorithm);
+        state.frameSteps = 0;
+        state.events = events;
+        int drained = events.drainTo(state);
+        if (drained == 0) return false;
+        state.appliedEvents += drained;
+        state.shownFrames++;
+        
+        if (state.frameSteps > 1) {
+            int skippedThisFrame = state.frameSteps - 1;
+            state.skippedSteps += skippedThisFrame;
+            skipLabels.get(algorithm).setText("⏭️ Passi saltati: " + state.skippedSteps
+                + " (ultimo frame: " + skippedThisFrame + ")");
+        }
+        
+        if ("⏳ In coda".equals(statusLabels.get(algorithm).getText())) {
+            statusLabels.get(algorithm).setText("🔄 In esecuzione...");
+        }
+        long elapsedTime = events.getElapsedTime();
+        state.counters.copyFrom(events.getCounters());
+        counterLabels.get(algorithm).setText(formatCounters(state.counters));
+        memoryLabels.get(algorithm).setText(formatMemory(state.counters));
+        updateVisualization(algorithm, state);
+        timeLabels.get(algorithm).setText("⏱️ Tempo: " + elapsedTime + "ms");
+        if (state.completed && !finalTimes.containsKey(algorithm)) {
+            statusLabels.get(algorithm).setText("✅ Completato!");
+            statusLabels.get(algorithm).getStyleClass().add("completed");
+            finalTimes.put(algorithm, elapsedTime);
+        }
+        return true;
+    }
+    
+    /** Per le versioni parallele, il nome della corrispondente sequenziale con cui confrontarle. */
+    private String sequentialCounterpart(String algorithm) {
+        return algorithm.startsWith("Parallel ") ? algorithm.substring("Parallel ".length()) : null;
+    }
+    
+    private String formatCounters(SortCounters c) {
+        return String.format("🔢 Confronti %,d · Scambi %,d · Letture %,d · Scritture %,d",
+                             c.getComparisons(), c.getSwaps(), c.getReads(), c.getWrites());
+    }
+    
+    private String formatMemory(SortCounters c) {
+        return String.format("🧠 Memoria aux. max %,d el. (%,d B) · Ricorsione max %d",
+                             c.getPeakAuxiliary(), c.getPeakAuxiliary() * Integer.BYTES, c.getPeakDepth());
+    }
+    
+    /**
+     * Salva in CSV i contatori correnti di ogni algoritmo, con i tempi animato e reale.
+     */
+    private void exportMetrics() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Esporta metriche");
+        chooser.setInitialFileName("metriche.csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showSaveDialog(exportButton.getScene().getWindow());
+        if (file == null) return;
+        
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            DatasetSpec spec = businessLogic.getDatasetSpec();
+            out.println("algorithm,size,seed,min_value,max_value,distribution,comparisons,swaps,reads,writes,peak_aux_elements,peak_aux_bytes,peak_depth,animated_ms,benchmark_ns");
+            for (Map.Entry<String, LocalState> entry : localStates.entrySet()) {
+                SortCounters c = entry.getValue().counters;
+                Long animated = finalTimes.get(entry.getKey());
+                Long benchmark = benchmarkTimes.get(entry.getKey());
+                out.println(String.format(Locale.ROOT, "\"%s\",%d,%d,%d,%d,%s,%d,%d,%d,%d,%d,%d,%d,%s,%s",
+                    entry.getKey(), spec.getSize(), spec.getSeed(), spec.getMinValue(), spec.getMaxValue(),
+                    spec.getDistribution(), c.getComparisons(), c.getSwaps(), c.getReads(),
+                    c.getWrites(), c.getPeakAuxiliary(), c.getPeakAuxiliary() * Integer.BYTES, c.getPeakDepth(),
+                    animated == null ? "" : animated, benchmark == null ? "" : benchmark));
+            }
+            instructions.setText("💾 Metriche salvate in " + file.getName());
+        } catch (IOException e) {
+            instructions.setText("⚠️ Esportazione non riuscita: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Chiude un campione dell'overlay: eventi in coda e passi si sommano su tutti gli algoritmi,
+     * e l'overlay, se visibile, li mostra anche per algoritmo.
+     */
+    private void showPerfSample(long now) {
+        long queued = 0;
+        long produced = 0;
+        long applied = 0;
+        long shown = 0;
+        StringBuilder perAlgorithm = new StringBuilder();
+        for (Map.Entry<String, LocalState> entry : localStates.entrySet()) {
+            LocalState state = entry.getValue();
+            long algorithmProduced = state.events == null ? 0 : state.events.produced();
+            queued += algorithmProduced - state.appliedEvents - state.droppedEvents;
+            produced += algorithmProduced;
+            applied += state.appliedEvents;
+            shown += state.shownFrames;
+            perAlgorithm.append(String.format("%n%-22s %,14d %,14d %,14d %,9d",
+                entry.getKey(), algorithmProduced, state.appliedEvents, state.droppedEvents, state.shownFrames));
+        }
+        PerfMonitor.Sample sample = perfMonitor.sample(now, renderNanosAverage / 1_000_000.0, queued, produced, applied, shown);
+        if (!perfOverlay.isVisible()) return;
+        perfOverlay.setText(String.format(
+            "📊 %.0f fps · pulse %.1f ms (max %.1f) · disegno %.2f ms%n"
+                + "📬 Eventi in coda: %,d · passi/s %,.0f prodotti, %,.0f applicati, %,.0f frame%n"
+                + "🧠 Heap %,d / %,d MB · GC %d pause, %d ms nell'ultimo secondo%n"
+                + "%-22s %14s %14s %14s %9s",
+            sample.fps, sample.pulseAverage, sample.pulseMax, sample.render, sample.queued,
+            sample.produced, sample.applied, sample.shown,
+            sample.heapUsed >> 20, sample.heapMax >> 20, sample.gcCount, sample.gcMillis,
+            "Algoritmo", "Prodotti", "Applicati", "Scartati", "Frame") + perAlgorithm);
+    }
+    
+    /** Salva in CSV l'anello dei campioni di prestazioni, dal piu' vecchio. */
+    private void exportPerfSamples() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Esporta prestazioni");
+        chooser.setInitialFileName("prestazioni.csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showSaveDialog(perfDumpButton.getScene().getWindow());
+        if (file == null) return;
+        
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            int samples = perfMonitor.writeCsv(out);
+            instructions.setText("💾 " + samples + " secondi di prestazioni salvati in " + file.getName());
+        } catch (IOException e) {
+            instructions.setText("⚠️ Esportazione non riuscita: " + e.getMessage());
+        }
+    }
+    
+    private void writeExternalFile() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Genera file di int");
+        chooser.setInitialFileName("dataset.bin");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Int big-endian", "*.bin"));
+        File file = chooser.showSaveDialog(externalGenerateButton.getScene().getWindow());
+        if (file == null) return;
+        
+        int size = externalSizeSelector.getValue();
+        setExternalRunning(true);
+        externalCancelButton.setDisable(true);
+        externalStatusLabel.setText(String.format("📝 Scrittura di %,d elementi...", size));
+        businessLogic.writeDatasetFile(file.toPath(), size).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            setExternalRunning(false);
+            externalStatusLabel.setText(error == null
+                ? "✅ File pronto: " + file.getName()
+                : "⚠️ Scrittura non riuscita: " + describeFailure(error));
+        }));
+    }
+    
+    /**
+     * Ordina su disco il file scelto in uno accanto, con estensione .sorted.
+     */
+    private void startExternalSort() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Ordina file di int");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Int big-endian", "*.bin"));
+        File file = chooser.showOpenDialog(externalSortButton.getScene().getWindow());
+        if (file == null) return;
+        
+        File output = new File(file.getParentFile(), file.getName() + ".sorted");
+        ExternalMergeSort sort = businessLogic.startExternalSort(file.toPath(), output.toPath());
+        externalSort = sort;
+        setExternalRunning(true);
+        externalStatusLabel.setText(String.format("💽 Ordinamento di %s (%,d MB)", file.getName(), file.length() >> 20));
+        externalTimer.start();
+        sort.completion().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            externalTimer.stop();
+            showExternalProgress();
+            setExternalRunning(false);
+            if (error == null) {
+                externalStatusLabel.setText(String.format("✅ Ordinato in %.1f s: %s",
+                    sort.getElapsedNanos() / 1e9, output.getName()));
+            } else if (sort.isCancelled()) {
+                externalStatusLabel.setText("⏹️ Ordinamento interrotto");
+            } else {
+                externalStatusLabel.setText("⚠️ Ordinamento non riuscito: " + describeFailure(error));
+            }
+        }));
+    }
+    
+    private void showExternalProgress() {
+        ExternalMergeSort sort = externalSort;
+        externalRunsLabel.setText(String.format("🧩 Run: %,d", sort.getRuns()));
+        externalPassLabel.setText(sort.getMergePass() == 0
+            ? "🔀 Creazione dei run"
+            : String.format("🔀 Passata %d / %d", sort.getMergePass(), sort.getMergePasses()));
+        externalBytesLabel.setText(String.format("📥 Letti %,d MB · 📤 Scritti %,d MB",
+            sort.getBytesRead() >> 20, sort.getBytesWritten() >> 20));
+        externalRateLabel.setText(String.format("⚡ %.0f MB/s", sort.getMegabytesPerSecond()));
+    }
+    
+    private void setExternalRunning(boolean running) {
+        externalSizeSelector.setDisable(running);
+        externalGenerateButton.setDisable(running);
+        externalSortButton.setDisable(running);
+        externalCancelButton.setDisable(!running);
+    }
+    
+    private void toggleStreaming() {
+        if (streamingRun != null && !streamingRun.completion().isDone()) {
+            streamingRun.cancel();
+            return;
+        }
+        StreamingRun run = businessLogic.startStreaming(streamingCountSelector.getValue(),
+                                                        STREAM_RATES.get(streamingRateSelector.getValue()));
+        streamingRun = run;
+        streamingButton.setText("⏹️ Ferma streaming");
+        streamingCountSelector.setDisable(true);
+        streamingRateSelector.setDisable(true);
+        streamingTimer.start();
+        run.completion().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            streamingTimer.stop();
+            showStreamingProgress();
+            streamingButton.setText("🌊 Avvia streaming");
+            streamingCountSelector.setDisable(false);
+            streamingRateSelector.setDisable(false);
+            if (error != null) {
+                streamingProgressLabel.setText("⚠️ Streaming non riuscito: " + describeFailure(error));
+            } else if (run.isCancelled()) {
+                streamingProgressLabel.setText(String.format("⏹️ Fermato dopo %,d valori", run.published()));
+            } else if (run.results().values().stream().anyMatch(result -> Boolean.FALSE.equals(result.isSorted()))) {
+                streamingProgressLabel.setText(String.format("❌ %,d valori inseriti, ma non tutte le strutture sono ordinate", run.size()));
+            } else {
+                streamingProgressLabel.setText(String.format("✅ %,d valori inseriti", run.size()));
+            }
+        }));
+    }
+    
+    private void showStreamingProgress() {
+        streamingProgressLabel.setText(String.format("🌊 Arrivati %,d / %,d", streamingRun.published(), streamingRun.size()));
+        for (StreamingResult result : streamingRun.results().values()) {
+            streamingLabels.get(result.getStrategy()).setText(String.format(
+                "%s: %,d · p50 %s · p99 %s · p99.9 %s · %,.0f ins/s (max %,.0f)",
+                result.getStrategy(), result.getInserted(), formatLatency(result.getP50()),
+                formatLatency(result.getP99()), formatLatency(result.getP999()),
+                result.getThroughput(), result.getCapacity())
+                + (result.isSorted() == null ? "" : result.isSorted() ? " · ✅ ordinato" : " · ❌ ordine errato"));
+        }
+    }
+    
+    private static String formatLatency(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        return nanos < 1_000_000 ? String.format("%.1f µs", nanos / 1e3) : String.format("%.1f ms", nanos / 1e6);
+    }
+    
+    /** Il messaggio dell'errore originale, senza l'involucro di CompletableFuture. */
+    private static String describeFailure(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+    
+    private String formatBenchmarkTime(long nanos) {
+        return String.format("⚡ Reale: %.3f ms", nanos / 1_000_000.0);
     }
     
     private void generateNewDataset() {
         businessLogic.generateNewDataset();
+        showNewDataset();
+    }
+    
+    private void generateDatasetFromSeed() {
+        long seed;
+        try {
+            seed = Long.parseLong(seedField.getText().trim());
+        } catch (NumberFormatException e) {
+            instructions.setText("⚠️ Seme non valido: serve un intero a 64 bit");
+            return;
+        }
+        businessLogic.generateDataset(seed);
+        showNewDataset();
+    }
+    
+    private void showNewDataset() {
+        clearReplay();
+        DatasetSpec spec = businessLogic.getDatasetSpec();
+        seedField.setText(Long.toString(spec.getSeed()));
+        datasetLabel.setText("🔑 " + spec);
         isSortedState = false;
         finalTimes.clear();
-        List<Integer> data = businessLogic.getOriginalData();
+        benchmarkTimes.clear();
+        resetLocalStates(false);
         for (String alg : visualPanes.keySet()) {
-            updateVisualization(alg, data, Collections.emptyList(), false);
+            updateVisualization(alg, localStates.get(alg));
+            counterLabels.get(alg).setText(formatCounters(localStates.get(alg).counters));
+            memoryLabels.get(alg).setText(formatMemory(localStates.get(alg).counters));
             statusLabels.get(alg).setText("⏸️ Pronto");
             statusLabels.get(alg).getStyleClass().remove("completed");
             timeLabels.get(alg).setText("⏱️ Tempo: 0ms");
+            benchmarkLabels.get(alg).setText("⚡ Reale: -");
+            skipLabels.get(alg).setText("⏭️ Passi saltati: 0");
+        }
+    }
+    
+    /**
+     * Prepara la riproduzione delle tracce di un'esecuzione terminata o annullata,
+     * lasciando i pannelli sull'ultimo passo registrato.
+     */
+    private void loadReplay(SortRun run) {
+        if (replayRun == run) return;
+        clearReplay();
+        replayRun = run;
+        for (Map.Entry<String, SortTrace> entry : run.traces().entrySet()) {
+            String alg = entry.getKey();
+            SortTrace.Reader reader = entry.getValue().newReader();
+            replayTraces.put(alg, entry.getValue());
+            replayReaders.put(alg, reader);
+            replayLength = Math.max(replayLength, entry.getValue().size());
+            // dopo una registrazione i pannelli sono ancora al dataset iniziale
+            reader.seek(entry.getValue().size());
+            localStates.get(alg).load(reader);
+            updateVisualization(alg, localStates.get(alg));
+        }
+        replayPosition = replayLength;
+        moveReplaySlider(Math.max(1, replayLength), replayLength);
+    }
+    
+    /** Chiude le tracce dell'esecuzione precedente, cancellandone gli eventuali file. */
+    private void clearReplay() {
+        stopReplay();
+        for (SortTrace trace : replayTraces.values()) {
+            trace.close();
+        }
+        replayRun = null;
+        replayTraces.clear();
+        replayReaders.clear();
+        replayLength = 0;
+        replayPosition = 0;
+        moveReplaySlider(1, 0);
+        replayButton.setDisable(true);
+        replaySlider.setDisable(true);
+    }
+    
+    private void toggleReplay() {
+        if (replaying) {
+            stopReplay();
+            return;
+        }
+        if (replayPosition >= replayLength) {
+            replayPosition = 0;
+        }
+        replaying = true;
+        replayButton.setText("⏸️ Ferma replay");
+        replayTimer.start();
+        particleLayer.setBusy(true);
+    }
+    
+    private void stopReplay() {
+        if (!replaying) return;
+        replaying = false;
+        replayTimer.stop();
+        particleLayer.setBusy(false);
+        replayButton.setText("⏪ Rivedi");
+    }
+    
+    /** Un frame di riproduzione: avanza tutti gli algoritmi dello stesso numero di passi. */
+    private void advanceReplay() {
+        showReplay(Math.min(replayLength, replayPosition + replaySpeedSelector.getValue()));
+        moveReplaySlider(replaySlider.getMax(), replayPosition);
+        if (replayPosition >= replayLength) {
+            stopReplay();
         }
     }
     
     /**
-     * Aggiorna la visualizzazione per un algoritmo.
-     * Se isCompleted==true, non si applica nessun effetto di lampeggio,
+     * Mostra ogni algoritmo dopo i primi {@code step} eventi della sua traccia: a parita'
+     * di passi si vede chi ha gia' finito. Chi ha una traccia piu' corta resta sull'ultimo passo.
+     */
+    private void showReplay(long step) {
+        replayPosition = step;
+        for (Map.Entry<String, SortTrace.Reader> entry : replayReaders.entrySet()) {
+            String alg = entry.getKey();
+            SortTrace.Reader reader = entry.getValue();
+            reader.seek(step);
+            LocalState state = localStates.get(alg);
+            state.load(reader);
+            updateVisualization(alg, state);
+            statusLabels.get(alg).setText(String.format("⏪ Passo %,d / %,d",
+                reader.position(), replayTraces.get(alg).size()));
+        }
+    }
+    
+    private void moveReplaySlider(double max, double value) {
+        movingReplaySlider = true;
+        replaySlider.setMax(max);
+        replaySlider.setValue(value);
+        movingReplaySlider = false;
+    }
+    
+    /**
+     * Aggiorna la visualizzazione per un algoritmo dalla sua copia locale.
+     * Se l'algoritmo ha completato, non si applica nessun effetto di lampeggio,
      * indipendentemente dallo stato di blinkBars.
      */
-    private void updateVisualization(String algorithm, List<Integer> data, List<Integer> activeIndices, boolean isCompleted) {
-        Pane pane = visualPanes.get(algorithm);
-        pane.getChildren().clear();
-        if (data.isEmpty()) return;
-        
-        double paneWidth = pane.getPrefWidth() - 20;
-        double paneHeight = pane.getPrefHeight() - 40;
-        double barWidth = paneWidth / data.size();
-        int maxValue = data.stream().max(Integer::compareTo).orElse(1);
-        Color algColor = getAlgorithmColor(algorithm);
-        
-        for (int i = 0; i < data.size(); i++) {
-            int value = data.get(i);
-            double barHeight = ((double) value / maxValue) * paneHeight;
-            Rectangle bar = new Rectangle();
-            bar.setWidth(barWidth - 2);
-            bar.setHeight(barHeight);
-            bar.setX(i * barWidth + 10);
-            bar.setY(paneHeight - barHeight + 10);
-            // Impostazione di default dell'opacità
-            bar.setOpacity(1.0);
-            
-            // Esegui l'animazione del colore solo se il lampeggiamento è abilitato
-            if (blinkBars) {
-                FillTransition ft = new FillTransition(Duration.millis(300), bar,
-                    algColor.deriveColor(0, 1, 1, 0.6),
-                    algColor.deriveColor(0, 1, 1, 1.0)
-                );
-                ft.setCycleCount(1);
-                ft.play();
-            } else {
-                bar.setFill(algColor.deriveColor(0, 1, 1, 1.0));
+    private void updateVisualization(String algorithm, LocalState state) {
+        if (state.columns != null) {
+            state.columns.refresh(state.data);
+            canvasRenderer.renderColumns(visualPanes.get(algorithm), state.columns, state.firstActive,
+                                         state.secondActive, getAlgorithmColor(algorithm), blinkBars, state.completed);
+        } else {
+            renderer.render(visualPanes.get(algorithm), state.data, state.firstActive, state.secondActive,
+                            state.workers, getAlgorithmColor(algorithm), blinkBars, state.completed);
+        }
+    }
+    
+    /**
+     * Riporta ogni pannello al dataset corrente. Se arriveranno eventi ciascuno ne tiene una
+     * copia; altrimenti gli array piu' lunghi delle colonne di pixel non si copiano affatto
+     * e tutti i pannelli condividono lo stesso riassunto per colonne.
+     */
+    private void resetLocalStates(boolean withEvents) {
+        if (withEvents || businessLogic.getDatasetSpec().getSize() <= PREVIEW_BARS) {
+            int[] data = businessLogic.getOriginalData();
+            for (LocalState state : localStates.values()) {
+                state.reset(data);
             }
-            
-            double intensity = 0.6 + (0.4 * value / maxValue);
-            Color barColor = Color.color(
-                algColor.getRed() * intensity,
-                algColor.getGreen() * intensity,
-                algColor.getBlue() * intensity
-            );
-            // Se il lampeggiamento è disattivato, imposta immediatamente il colore finale
-            if (!blinkBars) {
-                bar.setFill(barColor);
+        } else {
+            PixelColumns shared = businessLogic.getColumns(PREVIEW_BARS);
+            for (LocalState state : localStates.values()) {
+                state.preview(shared);
             }
-            
-            if (activeIndices.contains(i)) {
-                bar.getStyleClass().add("active-bar");
-            } else {
-                bar.setStroke(Color.DARKGRAY);
-                bar.setStrokeWidth(0.5);
-                
-                // Applica l'effetto di lampeggiamento solo se abilitato e se non è in stato Completato
-                if (blinkBars && !isCompleted) {
-                    FadeTransition blink = new FadeTransition(Duration.millis(500), bar);
-                    blink.setFromValue(1.0);
-                    blink.setToValue(0.4);
-                    blink.setAutoReverse(true);
-                    blink.setCycleCount(Animation.INDEFINITE);
-                    blink.play();
-                } else {
-                    bar.setOpacity(1.0);
-                }
+        }
+    }
+    
+    /**
+     * Il lampeggio segue un solo orologio: un timer che a ogni frame porta tutti i pannelli
+     * alla stessa opacita', attivo solo finche' il lampeggio e' abilitato.
+     */
+    private void setBlinking(boolean blinking) {
+        blinkBars = blinking;
+        if (blinking) {
+            blinkTimer.start();
+        } else {
+            blinkTimer.stop();
+        }
+        // le barre tornano subito opache, anche nei pannelli fermi
+        for (Map.Entry<String, LocalState> entry : localStates.entrySet()) {
+            updateVisualization(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Un frame dell'orologio del lampeggio. Il renderer a nodi cambia solo l'opacita' delle
+     * barre gia' costruite; il Canvas e i riassunti per colonne si ridisegnano.
+     */
+    private void blink(long now) {
+        double opacity = BarRenderer.blinkOpacity(now);
+        for (Map.Entry<String, LocalState> entry : localStates.entrySet()) {
+            LocalState state = entry.getValue();
+            if (state.completed) continue;
+            if (state.columns != null || !renderer.blink(visualPanes.get(entry.getKey()), opacity)) {
+                updateVisualization(entry.getKey(), state);
             }
-            
-            Text valueText = new Text(String.valueOf(value));
-            valueText.setX(i * barWidth + barWidth / 2 - 5 + 10);
-            valueText.setY(paneHeight - barHeight + 5);
-            valueText.setFont(Font.font("Consolas", 10));
-            valueText.setFill(Color.web("#FFFFFF", 0.9));
-            
-            Text indexText = new Text(String.valueOf(i));
-            indexText.setX(i * barWidth + barWidth / 2 - 3 + 10);
-            indexText.setY(paneHeight + 25);
-            indexText.setFont(Font.font("Consolas", 9));
-            indexText.setFill(Color.web("#CCCCCC", 0.7));
-            
-            pane.getChildren().addAll(bar, valueText, indexText);
+        }
+    }
+    
+    /**
+     * Cambia renderer e ridisegna subito tutti i pannelli dallo stato locale.
+     */
+    private void switchRenderer(BarRenderer newRenderer) {
+        renderer = newRenderer;
+        renderNanosAverage = 0;
+        for (Map.Entry<String, LocalState> entry : localStates.entrySet()) {
+            updateVisualization(entry.getKey(), entry.getValue());
         }
     }
     
@@ -459,12 +1433,17 @@ public class SortingVisualizerGUI extends Application {
             case "Shell Sort": return algorithmColors[6];
             case "Binary Insertion Sort": return algorithmColors[7];
             case "Counting Sort": return algorithmColors[8];
+            case "Parallel Merge Sort": return algorithmColors[9];
+            case "Parallel Quick Sort": return algorithmColors[10];
+            case "Radix Sort": return algorithmColors[11];
             default: return Color.GRAY;
         }
     }
     
     private void animateAndReorder() {
-        List<String> sortedAlgs = finalTimes.entrySet().stream()
+        // la classifica usa i tempi reali; quelli animati dipendono soprattutto dalle pause
+        Map<String, Long> ranking = benchmarkTimes.size() == finalTimes.size() ? benchmarkTimes : finalTimes;
+        List<String> sortedAlgs = ranking.entrySet().stream()
             .sorted(Comparator.comparingLong(Map.Entry::getValue))
             .map(Map.Entry::getKey)
             .collect(Collectors.toList());
@@ -614,9 +1593,142 @@ public class SortingVisualizerGUI extends Application {
         launch(args);
     }
     
-    public interface SortingCallback {
-        void onProgress(String algorithm, List<Integer> currentState, List<Integer> activeIndices,
-                        long elapsedTime, boolean isCompleted);
-        void onAllCompleted();
+    /**
+     * Casella a un solo posto tra un algoritmo e il thread JavaFX. Il produttore vi
+     * pubblica il proprio buffer di eventi a ogni passo; il timer di frame la svuota
+     * una volta per frame, qualunque sia il numero di passi avvenuti nel frattempo.
+     */
+    private static final class Mailbox {
+        private final AtomicReference<SortEventBuffer> latest = new AtomicReference<>();
+        
+        void publish(SortEventBuffer events) {
+            latest.lazySet(events);
+        }
+        
+        SortEventBuffer take() {
+            return latest.getAndSet(null);
+        }
+    }
+    
+    /**
+     * Copia locale dell'array di un algoritmo, aggiornata applicando i delta ricevuti.
+     * Per le versioni parallele ricorda anche quale worker ha lavorato per ultimo su ogni
+     * elemento (indice + 1, 0 = nessuno), cosi' il renderer colora gli intervalli per worker.
+     * Con piu' elementi che colonne di pixel aggiorna con gli stessi delta anche il riassunto
+     * per colonne, che si disegna al posto delle barre.
+     */
+    private static final class LocalState implements SortEventBuffer.Sink {
+        private int[] data = new int[0];
+        private int[] workers = new int[0];
+        private PixelColumns columns;
+        private final SortCounters counters = new SortCounters();
+        private int firstActive = SortEventBuffer.NO_INDEX;
+        private int secondActive = SortEventBuffer.NO_INDEX;
+        private boolean completed;
+        private int frameSteps;
+        private long skippedSteps;
+        // per l'overlay: buffer dell'esecuzione corrente, eventi applicati e frame disegnati
+        private SortEventBuffer events;
+        private long appliedEvents;
+        private long droppedEvents;
+        private long shownFrames;
+        
+        void reset(int[] initialData) {
+            data = initialData.clone();
+            workers = new int[data.length];
+            counters.clear();
+            firstActive = SortEventBuffer.NO_INDEX;
+            secondActive = SortEventBuffer.NO_INDEX;
+            completed = false;
+            skippedSteps = 0;
+            events = null;
+            appliedEvents = 0;
+            droppedEvents = 0;
+            shownFrames = 0;
+            columns = data.length > PREVIEW_BARS ? new PixelColumns(data, PREVIEW_BARS) : null;
+        }
+        
+        /** Mostra un riassunto condiviso senza tenere l'array: non deve ricevere eventi. */
+        void preview(PixelColumns shared) {
+            reset(new int[0]);
+            columns = shared;
+        }
+        
+        /** Copia lo stato di un cursore di riproduzione, che ha le stesse dimensioni. */
+        void load(SortTrace.Reader reader) {
+            System.arraycopy(reader.data(), 0, data, 0, data.length);
+            if (reader.workers() != null) {
+                System.arraycopy(reader.workers(), 0, workers, 0, workers.length);
+            } else {
+                Arrays.fill(workers, 0);
+            }
+            firstActive = reader.firstActive();
+            secondActive = reader.secondActive();
+            completed = reader.isCompleted();
+            if (columns != null) {
+                columns.load(data, workers);
+            }
+        }
+        
+        /** Gli eventi scartati non si vedranno: contano come passi saltati. */
+        @Override
+        public void onSnapshot(int[] snapshot, int[] snapshotWorkers, long dropped) {
+            System.arraycopy(snapshot, 0, data, 0, data.length);
+            System.arraycopy(snapshotWorkers, 0, workers, 0, workers.length);
+            if (columns != null) {
+                columns.load(data, workers);
+            }
+            droppedEvents += dropped;
+            skippedSteps += dropped;
+        }
+        
+        @Override
+        public void onEvent(int op, int a, int b) {
+            int opcode = SortEventBuffer.opcode(op);
+            if (opcode != SortEventBuffer.DONE && opcode != SortEventBuffer.RANGE) {
+                frameSteps++;
+            }
+            switch (opcode) {
+                case SortEventBuffer.COMPARE:
+                    firstActive = a;
+                    secondActive = b;
+                    break;
+                case SortEventBuffer.SWAP:
+                    int tmp = data[a];
+                    data[a] = data[b];
+                    data[b] = tmp;
+                    if (columns != null) {
+                        columns.swap(a, b, data[a], data[b]);
+                    }
+                    firstActive = a;
+                    secondActive = b;
+                    break;
+                case SortEventBuffer.WRITE:
+                    if (columns != null) {
+                        columns.update(a, data[a], b);
+                    }
+                    data[a] = b;
+                    firstActive = a;
+                    secondActive = SortEventBuffer.NO_INDEX;
+                    break;
+                case SortEventBuffer.RANGE:
+                    Arrays.fill(workers, a, b + 1, SortEventBuffer.worker(op) + 1);
+                    if (columns != null) {
+                        columns.range(a, b, SortEventBuffer.worker(op) + 1);
+                    }
+                    break;
+                case SortEventBuffer.DONE:
+                    firstActive = SortEventBuffer.NO_INDEX;
+                    secondActive = SortEventBuffer.NO_INDEX;
+                    Arrays.fill(workers, 0);
+                    if (columns != null) {
+                        columns.clearWorkers();
+                    }
+                    completed = true;
+                    break;
+                default:
+                    break;
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.sortingvisualizer;
+
+/**
+ * Fotografia delle misure di una strategia in modalita' streaming: inserimenti fatti,
+ * percentili della latenza di un inserimento e throughput. Immutabile.
+ */
+public final class StreamingResult {
+
+    private final String strategy;
+    private final long inserted;
+    private final long elapsedNanos;
+    private final long busyNanos;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    private final Boolean sorted;
+
+    StreamingResult(String strategy, LatencyHistogram latencies, long elapsedNanos, Boolean sorted) {
+        this.strategy = strategy;
+        this.inserted = latencies.count();
+        this.elapsedNanos = elapsedNanos;
+        this.busyNanos = latencies.total();
+        this.p50 = latencies.percentile(0.50);
+        this.p99 = latencies.percentile(0.99);
+        this.p999 = latencies.percentile(0.999);
+        this.max = latencies.max();
+        this.sorted = sorted;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    /** Latenza mediana di un inserimento, in nanosecondi; cosi' gli altri percentili. */
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /** Inserimenti al secondo dall'inizio dello stream: al piu' la frequenza di arrivo. */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : inserted * 1e9 / elapsedNanos;
+    }
+
+    /** Esito del controllo di fine stream: null finche' lo stream non e' finito, o se e' stato fermato. */
+    public Boolean isSorted() {
+        return sorted;
+    }
+
+    /** Inserimenti al secondo contando solo il tempo passato a inserire: il massimo sostenibile. */
+    public double getCapacity() {
+        return busyNanos == 0 ? 0 : inserted * 1e9 / busyNanos;
+    }
+}
@@ -0,0 +1,135 @@
+package com.sortingvisualizer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Un'esecuzione in modalita' streaming avviata da {@link SortingBusinessLogic#startStreaming}.
+ * Il thread generatore rende disponibili i valori di un dataset alla frequenza richiesta,
+ * spostando in avanti un indice volatile; ogni strategia ha un proprio thread che li inserisce
+ * non appena arrivano e misura la durata di ciascun inserimento. Le misure si pubblicano come
+ * {@link StreamingResult} ogni {@value #SNAPSHOT_STEPS} inserimenti e alla fine; a fine stream
+ * si controlla anche che ogni struttura contenga esattamente i valori arrivati, in ordine.
+ */
+public final class StreamingRun {
+
+    private static final int SNAPSHOT_STEPS = 1 << 14;
+    // attesa di chi ha consumato tutto il disponibile: non entra nelle latenze misurate
+    private static final long POLL_NANOS = 100_000;
+
+    private final int[] values;
+    private final double valuesPerSecond;
+    private final Map<String, StreamingSorter> sorters;
+    private final Map<String, StreamingResult> results = new LinkedHashMap<>();
+    private volatile int published;
+    private volatile boolean cancelled;
+    private volatile long startNanos;
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+    StreamingRun(int[] values, double valuesPerSecond, Map<String, StreamingSorter> sorters) {
+        this.values = values;
+        this.valuesPerSecond = valuesPerSecond;
+        this.sorters = sorters;
+        for (String strategy : sorters.keySet()) {
+            results.put(strategy, new StreamingResult(strategy, new LatencyHistogram(), 0, null));
+        }
+    }
+
+    /** Ferma generatore e strategie; le ultime misure restano disponibili. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    void setCompletion(CompletableFuture<Void> completion) {
+        this.completion = completion;
+    }
+
+    /** Lunghezza dello stream. */
+    public int size() {
+        return values.length;
+    }
+
+    /** Valori arrivati finora. */
+    public int published() {
+        return published;
+    }
+
+    /** Le ultime misure pubblicate per ogni strategia, nell'ordine del registro. */
+    public Map<String, StreamingResult> results() {
+        synchronized (results) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(results));
+        }
+    }
+
+    /** Corpo del thread generatore: il Pacer rilascia al piu' un frame di valori alla volta. */
+    void produce() {
+        startNanos = System.nanoTime();
+        if (valuesPerSecond <= 0) {
+            published = values.length;
+            return;
+        }
+        Pacer pacer = new Pacer(valuesPerSecond);
+        for (int i = 0; i < values.length && !cancelled; i++) {
+            long wait;
+            while ((wait = pacer.acquire()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            published = i + 1;
+        }
+    }
+
+    /** Corpo del thread di una strategia: inserisce i valori man mano che arrivano. */
+    void consume(String strategy) {
+        StreamingSorter sorter = sorters.get(strategy);
+        LatencyHistogram latencies = new LatencyHistogram();
+        int position = 0;
+        while (position < values.length && !cancelled) {
+            int available = published;
+            if (position == available) {
+                LockSupport.parkNanos(POLL_NANOS);
+                continue;
+            }
+            for (; position < available && !cancelled; position++) {
+                long start = System.nanoTime();
+                sorter.insert(values[position]);
+                latencies.record(System.nanoTime() - start);
+                if ((position + 1) % SNAPSHOT_STEPS == 0) {
+                    publish(strategy, latencies, null);
+                }
+            }
+        }
+        // uno stream fermato a meta' non ha un risultato da controllare
+        publish(strategy, latencies, cancelled ? null : isSorted(sorter, position));
+    }
+
+    /** Fuori dalle misure: confronta il contenuto con i primi count valori ordinati a parte. */
+    private boolean isSorted(StreamingSorter sorter, int count) {
+        if (sorter.size() != count) {
+            return false;
+        }
+        int[] actual = new int[count];
+        sorter.copyTo(actual);
+        int[] expected = Arrays.copyOf(values, count);
+        Arrays.sort(expected);
+        return Arrays.equals(actual, expected);
+    }
+
+    private void publish(String strategy, LatencyHistogram latencies, Boolean sorted) {
+        StreamingResult result = new StreamingResult(strategy, latencies, System.nanoTime() - startNanos, sorted);
+        synchronized (results) {
+            results.put(strategy, result);
+        }
+    }
+}
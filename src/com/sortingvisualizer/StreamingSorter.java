@@ -0,0 +1,32 @@
+package com.sortingvisualizer;
+
+/**
+ * Struttura che mantiene ordinati valori che arrivano uno alla volta, per la modalita'
+ * streaming. Usata da un solo thread: quello che la riempie.
+ */
+interface StreamingSorter {
+
+    void insert(int value);
+
+    /** Valori inseriti finora. */
+    int size();
+
+    /**
+     * Copia i valori in ordine crescente nelle prime size() posizioni di dest, senza cambiare
+     * lo stato della struttura. Serve al controllo di fine stream.
+     */
+    void copyTo(int[] dest);
+
+    /** La prima posizione in [from, to) con un valore maggiore di value: i valori uguali restano in ordine d'arrivo. */
+    static int upperBound(int[] values, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (values[mid] <= value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,38 @@
+package com.sortingvisualizer;
+
+import java.io.Closeable;
+
+/**
+ * Sequenza di byte in sola aggiunta su cui {@link SortTrace} scrive eventi e keyframe.
+ * Scrive un solo thread; si legge per posizione assoluta, anche mentre si scrive oltre.
+ */
+interface TraceStore extends Closeable {
+
+    void put(byte value);
+
+    byte get(long position);
+
+    /** Byte scritti finora. */
+    long size();
+
+    /** Accoda gli interi in big-endian, quattro byte ciascuno. */
+    default void putInts(int[] values) {
+        for (int value : values) {
+            put((byte) (value >>> 24));
+            put((byte) (value >>> 16));
+            put((byte) (value >>> 8));
+            put((byte) value);
+        }
+    }
+
+    default void getInts(long position, int[] dest) {
+        for (int i = 0; i < dest.length; i++, position += 4) {
+            dest[i] = (get(position) & 0xFF) << 24 | (get(position + 1) & 0xFF) << 16
+                    | (get(position + 2) & 0xFF) << 8 | (get(position + 3) & 0xFF);
+        }
+    }
+
+    /** Libera la memoria o i file occupati; dopo la chiusura lo store non si usa piu'. */
+    @Override
+    void close();
+}